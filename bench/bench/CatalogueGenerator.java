@@ -0,0 +1,202 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * Generator for synthetic book data files in the csv layout read by LibraryFileLoader.
+ *
+ * Authors and title words are drawn from Zipf distributions, so a few authors write
+ * many books and a few words appear in many titles, as in real catalogues. Ratings
+ * cluster around 3.9, page counts are log-normal and a small share of titles start
+ * with a digit. The same size and seed always produce the same file.
+ */
+public final class CatalogueGenerator {
+
+    /** Header line of every generated file. */
+    public static final String HEADER = "title,authors,average_rating,isbn,num_pages";
+
+    /** Seed used when none is given. */
+    public static final long DEFAULT_SEED = 42;
+
+    /** Syllables combined into title words and author names. */
+    private static final String[] SYLLABLES = {
+        "an", "bel", "cor", "dra", "el", "fen", "gar", "hol", "is", "jor", "kal", "lum",
+        "mor", "nar", "or", "pel", "quin", "ros", "sil", "tor", "ul", "vin", "wyn", "zed"
+    };
+
+    /** Common title words, the most frequent ones come first. */
+    private static final String[] COMMON_WORDS = {
+        "the", "of", "and", "a", "in", "to", "my", "night", "love", "war", "secret", "last",
+        "house", "life", "world", "king", "girl", "story", "dark", "book"
+    };
+
+    /** Random source, deterministic for a given seed. */
+    private final SplittableRandom random;
+
+    /** Number of distinct authors to choose from. */
+    private final int authorCount;
+
+    /** Number of distinct rare words to choose from. */
+    private final int vocabularySize;
+
+    /**
+     * Create a generator for a catalogue of the given size.
+     * @param books number of books that will be generated
+     * @param seed seed of the random source
+     */
+    public CatalogueGenerator(int books, long seed) {
+        this.random = new SplittableRandom(seed);
+        // roughly one author per 40 books and a vocabulary growing with the catalogue
+        this.authorCount = Math.max(10, books / 40);
+        this.vocabularySize = Math.max(100, (int) Math.sqrt(books) * 20);
+    }
+
+    /**
+     * Write a catalogue file with the given number of books.
+     * @param file path of the file to be written
+     * @param books number of books
+     * @param seed seed of the random source
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, int books, long seed) throws IOException {
+        Objects.requireNonNull(file, "Given file must not be null.");
+
+        CatalogueGenerator generator = new CatalogueGenerator(books, seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (int i = 0; i < books; i++) {
+                writer.write(generator.nextRow());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Get a cached catalogue file with the given number of books, generating it on first use.
+     * @param directory directory holding the cached files
+     * @param books number of books
+     * @return path of the catalogue file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path cached(Path directory, int books) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("catalogue-" + books + ".csv");
+        if (!Files.exists(file)) {
+            Path tmp = directory.resolve("catalogue-" + books + ".csv.tmp");
+            write(tmp, books, DEFAULT_SEED);
+            Files.move(tmp, file);
+        }
+        return file;
+    }
+
+    /**
+     * @return the next csv row
+     */
+    public String nextRow() {
+        StringBuilder row = new StringBuilder(96);
+        row.append(nextTitle()).append(',');
+
+        int authors = random.nextInt(10) < 8 ? 1 : 2 + random.nextInt(2);
+        for (int i = 0; i < authors; i++) {
+            if (i > 0) {
+                row.append('-');
+            }
+            row.append(authorName(zipf(authorCount)));
+        }
+
+        double rating = Math.max(0, Math.min(5, 3.9 + random.nextDouble(-1, 1) * random.nextDouble(0, 1.1)));
+        row.append(',').append(String.format(Locale.ROOT, "%.2f", rating));
+        row.append(',').append(1_000_000_000L + random.nextLong(9_000_000_000L));
+        row.append(',').append((int) Math.min(5000, Math.exp(5.6 + random.nextDouble(-1, 1))));
+        return row.toString();
+    }
+
+    /**
+     * @return a title of one to eight words
+     */
+    public String nextTitle() {
+        StringBuilder title = new StringBuilder(48);
+        if (random.nextInt(50) == 0) {
+            title.append(1 + random.nextInt(2100)).append(' ');
+        }
+
+        int words = 1 + Math.min(random.nextInt(4), random.nextInt(8));
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            String word = random.nextInt(3) == 0
+                    ? COMMON_WORDS[zipf(COMMON_WORDS.length) - 1]
+                    : syllables(zipf(vocabularySize), 2);
+            if (i == 0 || random.nextInt(4) == 0) {
+                word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            }
+            title.append(word);
+        }
+        return title.toString();
+    }
+
+    /**
+     * Author name for the given rank, the same rank always gives the same name.
+     * @param rank author rank starting at 1
+     * @return author name
+     */
+    public static String authorName(int rank) {
+        String first = syllables(rank * 7 + 3, 1);
+        String last = syllables(rank, 3);
+        return Character.toUpperCase(first.charAt(0)) + first.substring(1) + " "
+                + Character.toUpperCase(last.charAt(0)) + last.substring(1);
+    }
+
+    /**
+     * Word made of syllables encoding the given number.
+     * @param number number to be encoded
+     * @param minSyllables smallest number of syllables
+     * @return word for the number
+     */
+    private static String syllables(int number, int minSyllables) {
+        StringBuilder word = new StringBuilder();
+        int rest = number;
+        for (int i = 0; i < minSyllables || rest > 0; i++) {
+            word.append(SYLLABLES[rest % SYLLABLES.length]);
+            rest /= SYLLABLES.length;
+        }
+        return word.toString();
+    }
+
+    /**
+     * Draw a rank between 1 and n from an approximate Zipf distribution with exponent 1.
+     * @param n largest rank
+     * @return drawn rank
+     */
+    private int zipf(int n) {
+        // inverse transform of the continuous approximation of the harmonic series
+        double u = random.nextDouble();
+        int rank = (int) Math.exp(u * Math.log(n + 1.0));
+        return Math.max(1, Math.min(n, rank));
+    }
+
+    /**
+     * Write a catalogue file from the command line.
+     * @param args number of books and output path, optionally followed by a seed
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CatalogueGenerator <books> <output.csv> [seed]");
+            return;
+        }
+
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        write(Paths.get(args[1]), Integer.parseInt(args[0]), seed);
+    }
+}
@@ -0,0 +1,378 @@
+package bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks for every library command and the csv parse path.
+ *
+ * Catalogues are generated once per size by CatalogueGenerator and cached in the
+ * directory given by the system property {@code bench.dir} (default: a
+ * {@code library-bench} folder in the temp directory). Command output is discarded.
+ *
+ * To run, compile the classes in {@code src} (without FieldTestUtils and the tests) and then this
+ * package with jmh-core and jmh-generator-annprocess on the classpath, for example:
+ * <pre>
+ * javac -d out $(ls src/*.java | grep -v "FieldTestUtils\\|Test.java")
+ * javac -cp out:jmh-core.jar:jmh-generator-annprocess.jar:jopt-simple.jar:commons-math3.jar -d out bench/bench/*.java
+ * java -cp out:jmh-core.jar:jopt-simple.jar:commons-math3.jar bench.LibraryBenchmark [size...]
+ * </pre>
+ * The main method runs everything with the GC profiler, which reports allocation rates.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LibraryBenchmark {
+
+    /** Number of csv rows parsed per invocation of the parse benchmark. */
+    private static final int PARSE_BATCH = 10_000;
+
+    /** Number of authors removed per measured iteration of the remove benchmark. */
+    private static final int REMOVE_BATCH = 50;
+
+    /**
+     * A loaded library of the benchmarked size, shared by all read-only benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class Catalogue {
+
+        /** Number of books in the library. */
+        @Param({ "1000", "100000", "1000000", "10000000" })
+        public int books;
+
+        /** Generated catalogue file. */
+        Path file;
+
+        /** Loaded LibraryData. */
+        Object data;
+
+        /** CommandInterpreter used to execute commands. */
+        Object interpreter;
+
+        /** SEARCH for a word found in many titles. */
+        Object searchCommon;
+
+        /** SEARCH for a short substring matching many title words. */
+        Object searchSubstring;
+
+        /** SEARCH without any hits. */
+        Object searchMiss;
+
+        /** GROUP TITLE command. */
+        Object groupTitle;
+
+        /** GROUP AUTHOR command. */
+        Object groupAuthor;
+
+        /** LIST short command. */
+        Object listShort;
+
+        /** LIST long command. */
+        Object listLong;
+
+        /** Standard output replaced while the benchmark runs. */
+        private PrintStream originalOut;
+
+        /**
+         * Generate the catalogue if needed and load it.
+         * @throws IOException if the catalogue cannot be generated
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            originalOut = silenceStdOut();
+            file = CatalogueGenerator.cached(benchDirectory(), books);
+            data = LibraryHandles.loadLibrary(file);
+            interpreter = newInterpreter();
+
+            searchCommon = LibraryHandles.parse(interpreter, "SEARCH night");
+            searchSubstring = LibraryHandles.parse(interpreter, "SEARCH or");
+            searchMiss = LibraryHandles.parse(interpreter, "SEARCH qqqq");
+            groupTitle = LibraryHandles.parse(interpreter, "GROUP TITLE");
+            groupAuthor = LibraryHandles.parse(interpreter, "GROUP AUTHOR");
+            listShort = LibraryHandles.parse(interpreter, "LIST short");
+            listLong = LibraryHandles.parse(interpreter, "LIST long");
+        }
+
+        /** Restore standard output. */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.setOut(originalOut);
+        }
+    }
+
+    /**
+     * Raw csv rows for the parse benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class Rows {
+
+        /** Generated csv rows without header. */
+        String[] rows;
+
+        /** Generate the rows. */
+        @Setup(Level.Trial)
+        public void setUp() {
+            CatalogueGenerator generator = new CatalogueGenerator(PARSE_BATCH, CatalogueGenerator.DEFAULT_SEED);
+            rows = new String[PARSE_BATCH];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = generator.nextRow();
+            }
+        }
+    }
+
+    /**
+     * A freshly loaded library per iteration, as REMOVE changes it.
+     */
+    @State(Scope.Thread)
+    public static class Removal {
+
+        /** Loaded LibraryData, reloaded before every iteration. */
+        Object data;
+
+        /** CommandInterpreter used to execute commands. */
+        Object interpreter;
+
+        /** REMOVE AUTHOR commands for the most prolific authors. */
+        List<Object> commands;
+
+        /** Position of the next command to run. */
+        int next;
+
+        /** Standard output replaced while the benchmark runs. */
+        private PrintStream originalOut;
+
+        /**
+         * Load the catalogue and prepare the commands.
+         * @param catalogue catalogue of the benchmarked size
+         */
+        @Setup(Level.Iteration)
+        public void setUp(Catalogue catalogue) {
+            originalOut = silenceStdOut();
+            data = LibraryHandles.loadLibrary(catalogue.file);
+            interpreter = newInterpreter();
+            commands = new ArrayList<>();
+            for (int rank = 1; rank <= REMOVE_BATCH; rank++) {
+                commands.add(LibraryHandles.parse(interpreter,
+                        "REMOVE AUTHOR " + CatalogueGenerator.authorName(rank)));
+            }
+            next = 0;
+        }
+
+        /** Restore standard output. */
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            System.setOut(originalOut);
+        }
+    }
+
+    /**
+     * ADD throughput: load the whole catalogue into an empty library.
+     * @param catalogue catalogue of the benchmarked size
+     * @return loaded library
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object add(Catalogue catalogue) {
+        return LibraryHandles.loadLibrary(catalogue.file);
+    }
+
+    /**
+     * Parse path of LibraryFileLoader, reported per row.
+     * @param rows csv rows to be parsed
+     * @param blackhole sink for the parsed entries
+     * @throws Throwable if parsing fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(PARSE_BATCH)
+    public void parse(Rows rows, Blackhole blackhole) throws Throwable {
+        for (String row : rows.rows) {
+            blackhole.consume((Object) LibraryHandles.SPLIT_CONTENTS.invokeExact(row));
+        }
+    }
+
+    /**
+     * SEARCH latency for a frequent word.
+     * @param catalogue loaded library
+     * @throws Throwable if the command fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void searchCommon(Catalogue catalogue) throws Throwable {
+        execute(catalogue.interpreter, catalogue.searchCommon, catalogue.data);
+    }
+
+    /**
+     * SEARCH latency for a two letter substring.
+     * @param catalogue loaded library
+     * @throws Throwable if the command fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void searchSubstring(Catalogue catalogue) throws Throwable {
+        execute(catalogue.interpreter, catalogue.searchSubstring, catalogue.data);
+    }
+
+    /**
+     * SEARCH latency without hits.
+     * @param catalogue loaded library
+     * @throws Throwable if the command fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void searchMiss(Catalogue catalogue) throws Throwable {
+        execute(catalogue.interpreter, catalogue.searchMiss, catalogue.data);
+    }
+
+    /**
+     * GROUP TITLE over the whole library.
+     * @param catalogue loaded library
+     * @throws Throwable if the command fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void groupTitle(Catalogue catalogue) throws Throwable {
+        execute(catalogue.interpreter, catalogue.groupTitle, catalogue.data);
+    }
+
+    /**
+     * GROUP AUTHOR over the whole library.
+     * @param catalogue loaded library
+     * @throws Throwable if the command fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void groupAuthor(Catalogue catalogue) throws Throwable {
+        execute(catalogue.interpreter, catalogue.groupAuthor, catalogue.data);
+    }
+
+    /**
+     * LIST short rendering.
+     * @param catalogue loaded library
+     * @throws Throwable if the command fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void listShort(Catalogue catalogue) throws Throwable {
+        execute(catalogue.interpreter, catalogue.listShort, catalogue.data);
+    }
+
+    /**
+     * LIST long rendering.
+     * @param catalogue loaded library
+     * @throws Throwable if the command fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void listLong(Catalogue catalogue) throws Throwable {
+        execute(catalogue.interpreter, catalogue.listLong, catalogue.data);
+    }
+
+    /**
+     * REMOVE AUTHOR for the next of the most prolific authors.
+     * @param removal freshly loaded library
+     * @throws Throwable if the command fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 5, batchSize = REMOVE_BATCH)
+    @Warmup(iterations = 3, batchSize = REMOVE_BATCH)
+    public void removeAuthor(Removal removal) throws Throwable {
+        execute(removal.interpreter, removal.commands.get(removal.next++), removal.data);
+    }
+
+    /**
+     * Execute a parsed command.
+     * @param interpreter CommandInterpreter instance
+     * @param command LibraryCommand instance
+     * @param data LibraryData instance
+     * @throws Throwable if the command fails
+     */
+    private static void execute(Object interpreter, Object command, Object data) throws Throwable {
+        LibraryHandles.EXECUTE_COMMAND.invokeExact(interpreter, command, data);
+    }
+
+    /**
+     * @return a new CommandInterpreter instance
+     */
+    private static Object newInterpreter() {
+        try {
+            return (Object) LibraryHandles.NEW_INTERPRETER.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Discard everything written to standard output.
+     * @return the replaced standard output
+     */
+    private static PrintStream silenceStdOut() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+
+    /**
+     * @return directory holding the generated catalogues
+     */
+    private static Path benchDirectory() {
+        return Paths.get(System.getProperty("bench.dir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "library-bench").toString()));
+    }
+
+    /**
+     * Run all benchmarks with the GC profiler.
+     * @param args optional catalogue sizes overriding the default ones
+     * @throws RunnerException if running the benchmarks fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        options.include(LibraryBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class);
+        if (args.length > 0) {
+            options.param("books", args);
+        }
+
+        Options built = options.build();
+        new Runner(built).run();
+    }
+}
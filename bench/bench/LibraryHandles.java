@@ -0,0 +1,115 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+
+/**
+ * Method handles for the library classes.
+ *
+ * The library lives in the default package, which classes of a named package cannot
+ * refer to, while JMH refuses benchmarks in the default package. The handles are
+ * constants, so the JIT compiles their calls like direct calls.
+ */
+final class LibraryHandles {
+
+    /** Creates a new LibraryData: () -> Object. */
+    static final MethodHandle NEW_DATA;
+
+    /** LibraryData.loadData: (Object, Path) -> boolean. */
+    static final MethodHandle LOAD_DATA;
+
+    /** LibraryData.getBookData().size(): (Object) -> int. */
+    static final MethodHandle BOOK_COUNT;
+
+    /** Creates a new CommandInterpreter: () -> Object. */
+    static final MethodHandle NEW_INTERPRETER;
+
+    /** CommandInterpreter.parseCommand: (Object, String) -> Object. */
+    static final MethodHandle PARSE_COMMAND;
+
+    /** CommandInterpreter.executeCommand: (Object, Object, Object) -> void. */
+    static final MethodHandle EXECUTE_COMMAND;
+
+    /** LibraryFileLoader.splitContents: (String) -> Object. */
+    static final MethodHandle SPLIT_CONTENTS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> data = Class.forName("LibraryData");
+            Class<?> interpreter = Class.forName("CommandInterpreter");
+            Class<?> command = Class.forName("LibraryCommand");
+            Class<?> loader = Class.forName("LibraryFileLoader");
+            Class<?> entry = Class.forName("BookEntry");
+
+            NEW_DATA = lookup.findConstructor(data, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            LOAD_DATA = lookup.findVirtual(data, "loadData", MethodType.methodType(boolean.class, Path.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class, Path.class));
+            MethodHandle getBookData = lookup.findVirtual(data, "getBookData",
+                    MethodType.methodType(java.util.List.class));
+            MethodHandle size = lookup.findVirtual(java.util.List.class, "size", MethodType.methodType(int.class));
+            BOOK_COUNT = MethodHandles.filterReturnValue(getBookData, size)
+                    .asType(MethodType.methodType(int.class, Object.class));
+            NEW_INTERPRETER = lookup.findConstructor(interpreter, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            PARSE_COMMAND = lookup.findVirtual(interpreter, "parseCommand",
+                    MethodType.methodType(command, String.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, String.class));
+            EXECUTE_COMMAND = lookup.findVirtual(interpreter, "executeCommand",
+                    MethodType.methodType(void.class, command, data))
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class, Object.class));
+            SPLIT_CONTENTS = lookup.findStatic(loader, "splitContents", MethodType.methodType(entry, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Not to be used. */
+    private LibraryHandles() {
+        throw new UnsupportedOperationException("This constructor should never be used.");
+    }
+
+    /**
+     * Create a library holding the given catalogue file.
+     * @param file catalogue file
+     * @return LibraryData instance
+     */
+    static Object loadLibrary(Path file) {
+        try {
+            Object data = NEW_DATA.invokeExact();
+            boolean success = (boolean) LOAD_DATA.invokeExact(data, file);
+            if (!success) {
+                throw new IllegalStateException("Loading failed for " + file);
+            }
+            return data;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parse a command line into a command.
+     * @param interpreter CommandInterpreter instance
+     * @param line command line
+     * @return LibraryCommand instance
+     */
+    static Object parse(Object interpreter, String line) {
+        try {
+            Object command = PARSE_COMMAND.invokeExact(interpreter, line);
+            if (command == null) {
+                throw new IllegalArgumentException("Invalid command: " + line);
+            }
+            return command;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
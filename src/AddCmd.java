@@ -14,11 +14,29 @@ public class AddCmd extends LibraryCommand {
         super(CommandType.ADD, argumentInput);
     }
 
+    /**
+     * Creates an add command, printing parse errors to the given output context.
+     * @param argumentInput argument input is expected to a .csv file
+     * @param output output context errors found while parsing the argument are printed to.
+     * @throws IllegalArgumentException if given arguments are invalid
+     * @throws NullPointerException if any of the given parameters are null.
+     */
+    public AddCmd(String argumentInput, CommandOutput output) {
+        super(CommandType.ADD, argumentInput, output);
+    }
+
     /**
      * Path of the file in add command
      */
     private Path filePath;
 
+    /**
+     * @return path of the file to be added
+     */
+    public Path getFilePath() {
+        return filePath;
+    }
+
     /***
      * Checks whether a given argument is valid or not, true if last four letters ends in ".csv" returns false otherwise
      * @param argumentInput argument input for this command.
@@ -34,11 +52,11 @@ public class AddCmd extends LibraryCommand {
                 filePath = Paths.get(argumentInput);
                 return true;
             } else {
-                System.err.println("Invalid argument for ADD command: " + argumentInput);
+                getParseOutput().err().println("Invalid argument for ADD command: " + argumentInput);
                 return false;
             }
         }catch(IllegalArgumentException e) {
-            System.err.println("ERROR: Given command input is invalid: " + argumentInput);
+            getParseOutput().err().println("ERROR: Given command input is invalid: " + argumentInput);
             return false;
         }
     }
@@ -46,13 +64,14 @@ public class AddCmd extends LibraryCommand {
     /***
      * Executes the add command. This adds book entries to the library.
      * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
      * @throws NullPointerException if the given data is null.
      */
     @Override
-    public void execute(LibraryData data) {
+    public void execute(LibraryData data, CommandOutput output) {
         Objects.requireNonNull(data, "Given argument input must not be null.");
 
-        data.loadData(filePath);
+        data.loadData(filePath, output);
     }
 
 }
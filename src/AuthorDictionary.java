@@ -0,0 +1,225 @@
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Dictionary encoding author names as dense integer ids.
+ *
+ * Every distinct name is stored once as a canonical String and keeps its id for the
+ * lifetime of the dictionary, so two canonical names are equal exactly if they are the
+ * same instance. Names can be looked up straight from a range of characters, which lets
+ * the file loader reuse the canonical instance without creating a substring first.
+ *
+ * Names are added by one thread at a time, while find, nameOf and names can be used
+ * by any number of threads at once without locking: a name only becomes visible once
+ * the size has been raised past its id.
+ */
+public class AuthorDictionary {
+
+    /** Number of table positions of a new dictionary, always a power of two. */
+    private static final int INITIAL_CAPACITY = 1 << 6;
+
+    /** Id plus one of the name at each table position, 0 if the position is unused. */
+    private volatile int[] table;
+
+    /** Canonical names by id. */
+    private volatile String[] names;
+
+    /** Number of distinct names. */
+    private volatile int size;
+
+    /** Create a new and empty dictionary. */
+    public AuthorDictionary() {
+        table = new int[INITIAL_CAPACITY];
+        names = new String[INITIAL_CAPACITY / 2];
+        size = 0;
+    }
+
+    /**
+     * Get the id of an author name, adding the name if it is not known yet.
+     * @param name author name
+     * @return id of the name
+     * @throws NullPointerException if the given name is null
+     */
+    public synchronized int idOf(String name) {
+        Objects.requireNonNull(name, "Given name must not be null.");
+
+        int pos = position(name, 0, name.length(), name.hashCode());
+        int id = table[pos] - 1;
+        return id != -1 ? id : add(pos, name);
+    }
+
+    /**
+     * Get the id of the author name held by a range of characters, adding the name if
+     * it is not known yet. No String is created if the name is already known.
+     * @param source characters holding the name
+     * @param start first character of the name
+     * @param end character after the last one of the name
+     * @return id of the name
+     * @throws NullPointerException if the given source is null
+     * @throws IndexOutOfBoundsException if the range is not within the source
+     */
+    public synchronized int idOf(CharSequence source, int start, int end) {
+        Objects.requireNonNull(source, "Given source must not be null.");
+        Objects.checkFromToIndex(start, end, source.length());
+
+        int pos = position(source, start, end, hash(source, start, end));
+        int id = table[pos] - 1;
+        return id != -1 ? id : add(pos, source.subSequence(start, end).toString());
+    }
+
+    /**
+     * Get the id of a known author name.
+     * @param name author name
+     * @return id of the name or -1 if the name is not known
+     * @throws NullPointerException if the given name is null
+     */
+    public int find(String name) {
+        Objects.requireNonNull(name, "Given name must not be null.");
+
+        // read the table before the size and the size before the names, see add
+        int[] currentTable = table;
+        int currentSize = size;
+        String[] currentNames = names;
+
+        int mask = currentTable.length - 1;
+        for (int pos = spread(name.hashCode()) & mask; currentTable[pos] != 0; pos = (pos + 1) & mask) {
+            int id = currentTable[pos] - 1;
+            if (id < currentSize && matches(currentNames[id], name, 0, name.length())) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id id of an author name
+     * @return the canonical author name with the given id
+     * @throws IndexOutOfBoundsException if the id is unknown
+     */
+    public String nameOf(int id) {
+        Objects.checkIndex(id, size);
+        return names[id];
+    }
+
+    /**
+     * Get the array holding the canonical names by id. Entries below the current
+     * size never change, so the array can be read later on without locking.
+     * @return array of canonical names by id
+     */
+    String[] names() {
+        return names;
+    }
+
+    /**
+     * @return number of distinct author names
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the table position of a name, which is either the position holding the name
+     * or the free position the name would be added at.
+     * @param source characters holding the name
+     * @param start first character of the name
+     * @param end character after the last one of the name
+     * @param hash String hash code of the name
+     * @return table position
+     */
+    private int position(CharSequence source, int start, int end, int hash) {
+        int[] currentTable = table;
+        String[] currentNames = names;
+        int mask = currentTable.length - 1;
+        int pos = spread(hash) & mask;
+        while (currentTable[pos] != 0 && !matches(currentNames[currentTable[pos] - 1], source, start, end)) {
+            pos = (pos + 1) & mask;
+        }
+        return pos;
+    }
+
+    /**
+     * Add a new name at a free table position.
+     * @param pos free table position found for the name
+     * @param name the name to be added
+     * @return id of the new name
+     */
+    private int add(int pos, String name) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        // readers ignore ids not below the size, so the size is raised last
+        names[size] = name;
+        table[pos] = size + 1;
+        size++;
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return size - 1;
+    }
+
+    /**
+     * Rebuild the table with the given capacity.
+     * @param capacity new number of table positions, a power of two
+     */
+    private void rehash(int capacity) {
+        // the new table is filled before it is published, readers keep using the old one until then
+        int[] rehashed = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int pos = spread(names[id].hashCode()) & mask;
+            while (rehashed[pos] != 0) {
+                pos = (pos + 1) & mask;
+            }
+            rehashed[pos] = id + 1;
+        }
+        table = rehashed;
+    }
+
+    /**
+     * Check if a name equals a range of characters.
+     * @param name canonical name
+     * @param source characters to compare with
+     * @param start first character of the range
+     * @param end character after the last one of the range
+     * @return true if the name consists of exactly the characters of the range
+     */
+    private static boolean matches(String name, CharSequence source, int start, int end) {
+        if (name == source) {
+            return true;
+        } else if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compute the hash code of a range of characters the way String.hashCode does.
+     * @param source characters to be hashed
+     * @param start first character of the range
+     * @param end character after the last one of the range
+     * @return hash code equal to that of the String with the same characters
+     */
+    private static int hash(CharSequence source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Spread the bits of a hash code over the table positions.
+     * @param hash hash code
+     * @return spread hash code
+     */
+    private static int spread(int hash) {
+        int spread = hash * 0x9E3779B9;
+        return spread ^ (spread >>> 16);
+    }
+}
@@ -1,4 +1,8 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.DecimalFormatSymbols;
 import java.util.Arrays;
+import java.util.Locale;
 import java.util.Objects;
 
 /**
@@ -21,6 +25,12 @@ public class BookEntry {
     /** Integer Number of pages within a book*/
     private final int pages;
 
+    /** Cached result of toString, null until it is first needed*/
+    private String longForm;
+
+    /** Last locale found to format decimals with '0' digits and a '.' separator*/
+    private static volatile Locale plainDecimalLocale = null;
+
     /**
      * Intialises all fields.
      * Bookdata for a single book entry, checks if it is valid, if so then returns all info.
@@ -102,31 +112,110 @@ public class BookEntry {
     }
 
     /**
-     * A String representation of the book data
+     * A String representation of the book data, computed once and cached afterwards.
      * @return A string of with all book data formatted
      */
     @Override
     public String toString(){
-        StringBuilder strBuilder = new StringBuilder();
-        strBuilder.append(title);
-        strBuilder.append("\nby ");
+        String result = longForm;
+
+        if (result == null) {
+            StringBuilder strBuilder = new StringBuilder();
+            try {
+                render(strBuilder);
+            } catch (IOException e) {
+                // a StringBuilder never throws
+                throw new UncheckedIOException(e);
+            }
+            result = strBuilder.toString();
+            longForm = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Append the String representation of the book data to the given output, without creating
+     * an intermediate String if it has not been cached yet.
+     * @param out output the book data is appended to
+     * @throws IOException if appending to the output fails
+     */
+    public void appendTo(Appendable out) throws IOException {
+        String result = longForm;
+
+        if (result != null) {
+            out.append(result);
+        } else {
+            render(out);
+        }
+    }
+
+    /**
+     * Render all book data in the format of toString.
+     * @param out output the book data is appended to
+     * @throws IOException if appending to the output fails
+     */
+    private void render(Appendable out) throws IOException {
+        out.append(title);
+        out.append("\nby ");
 
         for (int i = 0; i < authors.length; i++) {
-            String author = authors[i];
-            strBuilder.append(author);
+            out.append(authors[i]);
 
             //Checks if is not the last author, is so then it will not print a comma to separate them
-            if (author != authors[authors.length - 1]) {
-                strBuilder.append(", ");
+            if (i != authors.length - 1) {
+                out.append(", ");
             }
         }
 
-        strBuilder.append("\n");
-        strBuilder.append("Rating: ").append(String.format("%.2f", rating)).append("\n");
-        strBuilder.append("ISBN: ").append(ISBN).append("\n");
-        strBuilder.append(pages).append(" pages");
+        out.append("\n");
+        out.append("Rating: ");
+        appendRating(out);
+        out.append("\n");
+        out.append("ISBN: ").append(ISBN).append("\n");
+        out.append(Integer.toString(pages)).append(" pages");
+    }
+
+    /**
+     * Append the rating with two decimals, just as String.format("%.2f", rating) would do.
+     *
+     * The float is scaled by 100 in double precision, which is exact, and rounded half up like
+     * Formatter does. Locales not using '0' digits and a '.' separator, as well as NaN and
+     * negative zero, are left to String.format.
+     *
+     * @param out output the rating is appended to
+     * @throws IOException if appending to the output fails
+     */
+    private void appendRating(Appendable out) throws IOException {
+        if (Float.isNaN(rating) || Float.floatToRawIntBits(rating) < 0
+                || !usesPlainDecimals(Locale.getDefault(Locale.Category.FORMAT))) {
+            out.append(String.format("%.2f", rating));
+            return;
+        }
+
+        long hundredths = (long) Math.floor((double) rating * 100.0 + 0.5);
+        int fraction = (int) (hundredths % 100);
+
+        out.append(Long.toString(hundredths / 100)).append('.');
+        out.append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+
+    /**
+     * Checks whether the locale formats decimals with '0' digits and a '.' separator.
+     * @param locale locale used by String.format
+     * @return true if the locale uses plain decimals, false otherwise
+     */
+    private static boolean usesPlainDecimals(Locale locale) {
+        if (locale.equals(plainDecimalLocale)) {
+            return true;
+        }
 
-        return strBuilder.toString();
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        if (symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.') {
+            plainDecimalLocale = locale;
+            return true;
+        }
+        return false;
     }
 
     /**
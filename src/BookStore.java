@@ -0,0 +1,68 @@
+import java.util.List;
+
+/**
+ * Storage for the book entries of a library.
+ *
+ * Every added book gets a slot, and slots are handed out in increasing order. A removed
+ * book keeps its slot until the store is compacted, so the library indexes can refer
+ * to books by slot.
+ */
+public interface BookStore {
+
+    /**
+     * Store a book in the next free slot.
+     * @param entry book to be stored
+     * @param authorIds ids of the authors of the book in the dictionary of the library, in the order of its authors
+     * @return slot of the stored book
+     */
+    int add(BookEntry entry, int[] authorIds);
+
+    /**
+     * @return number of slots in use, including slots of removed books
+     */
+    int size();
+
+    /**
+     * @param slot slot of a book
+     * @return true if the book in the slot has been removed
+     */
+    boolean isRemoved(int slot);
+
+    /**
+     * @param slot slot of a book
+     * @return book in the slot or null if it has been removed
+     */
+    BookEntry get(int slot);
+
+    /**
+     * @param slot slot of a book that has not been removed
+     * @return title of the book
+     */
+    String getTitle(int slot);
+
+    /**
+     * @param slot slot of a book that has not been removed
+     * @return authors of the book
+     */
+    String[] getAuthors(int slot);
+
+    /**
+     * Mark the book in the given slot as removed.
+     * @param slot slot of a book that has not been removed
+     */
+    void remove(int slot);
+
+    /**
+     * Drop all removed books, moving the remaining ones to the front in slot order.
+     * @return new slot for every old slot, or -1 if its book was removed
+     */
+    int[] compact();
+
+    /**
+     * Read-only list of all books not removed, ordered by slot. The list keeps holding
+     * exactly these books, whatever happens to the store later, so it can be read without
+     * any locking.
+     * @return list of all books not removed
+     */
+    List<BookEntry> asList();
+}
@@ -22,8 +22,23 @@ public final class CommandFactory { // the final keyword prevents subclassing of
      * @throws NullPointerException If one of the given parameters is null.
      */
     public static LibraryCommand createCommand(CommandType cmdType, String argumentInput) {
+        return createCommand(cmdType, argumentInput, CommandOutput.standard());
+    }
+
+    /**
+     * Create library command for the given type and argument, printing errors to the given output context.
+     * 
+     * @param cmdType Type of the command to be created
+     * @param argumentInput command argument to be used during initialisation of the command
+     * @param output output context errors found while creating the command are printed to
+     * @return Command of the given type initialised for the given argument. If command creation 
+     * failed due to an illegal argument, null will be returned.
+     * @throws NullPointerException If one of the given parameters is null.
+     */
+    public static LibraryCommand createCommand(CommandType cmdType, String argumentInput, CommandOutput output) {
         Objects.requireNonNull(cmdType, "Given command type must not be null.");
         Objects.requireNonNull(argumentInput, "Given argument input must not be null.");
+        Objects.requireNonNull(output, "Given output must not be null.");
 
         try {
             switch(cmdType) {
@@ -34,16 +49,20 @@ public final class CommandFactory { // the final keyword prevents subclassing of
 
                 case HELP: return new HelpCmd(argumentInput);
                 case EXIT: return new ExitCmd(argumentInput);
-                case ADD: return new AddCmd(argumentInput);
-                case LIST: return new ListCmd(argumentInput);
+                case ADD: return new AddCmd(argumentInput, output);
+                case LIST: return new ListCmd(argumentInput, output);
                 case SEARCH: return new SearchCmd(argumentInput);
                 case REMOVE: return new RemoveCmd(argumentInput);
                 case GROUP: return new GroupCmd(argumentInput);
+                case SAVE: return new SaveCmd(argumentInput, output);
+                case LOAD: return new LoadCmd(argumentInput, output);
+                case STATS: return new StatsCmd(argumentInput);
+                case SUGGEST: return new SuggestCmd(argumentInput);
                 default:
                     throw new IllegalArgumentException("Command type not supported: " + cmdType);
             }
         } catch (IllegalArgumentException e) {
-            System.err.println("ERROR: " + e.getMessage());
+            output.err().println("ERROR: " + e.getMessage());
         }
 
         return null;
@@ -24,7 +24,40 @@ public class CommandInterpreter {
      * @throws NullPointerException If the given input line is null.
      */
     public LibraryCommand parseCommand(String inputLine) {
+        return parseCommand(inputLine, CommandOutput.standard());
+    }
+
+    /**
+     * Parse given user input and create a corresponding library command,
+     * printing errors found while parsing to the given output context.
+     * 
+     * @param inputLine The input is expected to be a single line starting with a command
+     * keyword followed by corresponding arguments.
+     * @param output output context errors found while parsing are printed to.
+     * @return Command as specified in the given input line. If command creation 
+     * failed due to an illegal argument or command keyword, null will be returned.
+     * @throws NullPointerException If one of the given parameters is null.
+     */
+    public LibraryCommand parseCommand(String inputLine, CommandOutput output) {
         Objects.requireNonNull(inputLine, "Given input must not be null.");
+        Objects.requireNonNull(output, "Given output must not be null.");
+
+        if (LibraryMetrics.ENABLED) {
+            long start = System.nanoTime();
+            LibraryCommand command = splitCommand(inputLine, output);
+            LibraryMetrics.recordParse(command, System.nanoTime() - start);
+            return command;
+        }
+        return splitCommand(inputLine, output);
+    }
+
+    /**
+     * Split the given input line into command keyword and argument and create the command.
+     * @param inputLine single line starting with a command keyword
+     * @param output output context errors found while parsing are printed to
+     * @return Command as specified in the given input line or null if command creation failed.
+     */
+    private LibraryCommand splitCommand(String inputLine, CommandOutput output) {
 
         // split command keyword from arguments
         int firstSpaceIdx = inputLine.indexOf(COMMAND_ARGUMENT_DELIMITER);
@@ -37,7 +70,7 @@ public class CommandInterpreter {
             argumentInput = inputLine.substring(firstSpaceIdx + 1);
         }
 
-        return setupCommand(commandInput, argumentInput);
+        return setupCommand(commandInput, argumentInput, output);
     }
 
     /**
@@ -48,25 +81,45 @@ public class CommandInterpreter {
      * @throws NullPointerException If one of the given parameters is null.
      */
     public void executeCommand(LibraryCommand command, LibraryData data) {
+        executeCommand(command, data, CommandOutput.standard());
+    }
+
+    /**
+     * Execute the given command, printing all output to the given output context.
+     * 
+     * @param command Command to be executed.
+     * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
+     * @throws NullPointerException If one of the given parameters is null.
+     */
+    public void executeCommand(LibraryCommand command, LibraryData data, CommandOutput output) {
         Objects.requireNonNull(command, "Given command must not be null.");
         Objects.requireNonNull(data, "Given data must not be null.");
+        Objects.requireNonNull(output, "Given output must not be null.");
 
-        command.execute(data);
+        if (LibraryMetrics.ENABLED) {
+            long start = System.nanoTime();
+            command.execute(data, output);
+            LibraryMetrics.recordExecute(command.getType(), 1, System.nanoTime() - start);
+            return;
+        }
+        command.execute(data, output);
     }
 
     /**
      * Create a command from given keyword and argument input.
      * @param commandInput command keyword
      * @param argumentInput command argument
+     * @param output output context errors found while parsing are printed to
      * @return Command as specified in the given input line. If command creation 
      * failed due to an illegal argument or command keyword, null will be returned.
      */
-    private LibraryCommand setupCommand(String commandInput, String argumentInput) {
+    private LibraryCommand setupCommand(String commandInput, String argumentInput, CommandOutput output) {
 
         CommandType cmdType = parseCommandType(commandInput);
         LibraryCommand command = null;
         if (cmdType != null) {
-            command = CommandFactory.createCommand(cmdType, argumentInput);
+            command = CommandFactory.createCommand(cmdType, argumentInput, output);
         }
 
         return command;
@@ -0,0 +1,89 @@
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+/**
+ * Output context of a single command execution.
+ *
+ * Commands print their regular output and their error messages to the streams of the
+ * context they are executed with, instead of System.out and System.err. This way the output
+ * of commands executed at the same time can be captured independently, without replacing
+ * the global streams.
+ */
+public class CommandOutput {
+
+    /** Stream regular output is printed to. */
+    private final PrintStream out;
+
+    /** Stream error messages are printed to. */
+    private final PrintStream err;
+
+    /**
+     * Create an output context printing to the given streams.
+     * @param out stream regular output is printed to
+     * @param err stream error messages are printed to, may be the same as out
+     * @throws NullPointerException if one of the given streams is null
+     */
+    public CommandOutput(PrintStream out, PrintStream err) {
+        this.out = Objects.requireNonNull(out, "Given output stream must not be null.");
+        this.err = Objects.requireNonNull(err, "Given error stream must not be null.");
+    }
+
+    /**
+     * Create an output context collecting all output in the given buffers.
+     * Regular output and error messages are kept apart if two different buffers are given.
+     * @param out buffer regular output is collected in
+     * @param err buffer error messages are collected in, may be the same as out
+     * @return output context writing to the buffers
+     * @throws NullPointerException if one of the given buffers is null
+     */
+    public static CommandOutput of(OutputBuffer out, OutputBuffer err) {
+        return of(out, err, Charset.defaultCharset());
+    }
+
+    /**
+     * Create an output context collecting all output in the given buffers, encoded with the given charset.
+     * Regular output and error messages are kept apart if two different buffers are given.
+     * @param out buffer regular output is collected in
+     * @param err buffer error messages are collected in, may be the same as out
+     * @param charset charset the output is encoded with
+     * @return output context writing to the buffers
+     * @throws NullPointerException if one of the given buffers or the charset is null
+     */
+    public static CommandOutput of(OutputBuffer out, OutputBuffer err, Charset charset) {
+        Objects.requireNonNull(out, "Given output buffer must not be null.");
+        Objects.requireNonNull(err, "Given error buffer must not be null.");
+        Objects.requireNonNull(charset, "Given charset must not be null.");
+
+        PrintStream outStream = new PrintStream(out, false, charset);
+        PrintStream errStream = out == err ? outStream : new PrintStream(err, false, charset);
+        return new CommandOutput(outStream, errStream);
+    }
+
+    /**
+     * @return output context printing to the current System.out and System.err
+     */
+    public static CommandOutput standard() {
+        return new CommandOutput(System.out, System.err);
+    }
+
+    /**
+     * @return stream regular output is printed to
+     */
+    public PrintStream out() {
+        return out;
+    }
+
+    /**
+     * @return stream error messages are printed to
+     */
+    public PrintStream err() {
+        return err;
+    }
+
+    /** Flush both streams, so everything printed so far reaches the underlying output. */
+    public void flush() {
+        out.flush();
+        err.flush();
+    }
+}
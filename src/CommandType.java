@@ -6,5 +6,9 @@ public enum CommandType {
     SEARCH,
     LIST,
     REMOVE,
-    GROUP
+    GROUP,
+    SAVE,
+    LOAD,
+    STATS,
+    SUGGEST
 }
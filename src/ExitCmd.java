@@ -19,9 +19,10 @@ public class ExitCmd extends LibraryCommand {
      * required for the exit command and does nothing.
      *
      * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
      */
     @Override
-    public void execute(LibraryData data) {
+    public void execute(LibraryData data, CommandOutput output) {
         // nothing to do here
     }
     
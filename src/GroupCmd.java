@@ -1,7 +1,8 @@
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
 
 public class GroupCmd extends LibraryCommand {
@@ -49,39 +50,72 @@ public class GroupCmd extends LibraryCommand {
     /***
      * Executes the Group command. This sorts data by title or author.
      * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
      * @throws NullPointerException if given data is null.
      */
     @Override
-    public void execute(LibraryData data) {
+    public void execute(LibraryData data, CommandOutput output) {
         Objects.requireNonNull(data, "ERROR: INPUT CANNOT BE NULL");
+        LibraryEvents.Group event = new LibraryEvents.Group();
+        event.begin();
+        event.groupBy = groupBy;
+
+        String query = getType() + " " + groupBy;
+        QueryCache cache = data.getQueryCache();
+        long version = data.getVersion();
+        String cached = cache.get(query, version);
+        if (cached != null) {
+            output.out().print(cached);
+            output.out().flush();
+            event.rows = -1;
+            event.cached = true;
+            event.commit();
+            return;
+        }
 
         List<BookEntry> bookData = data.getBookData();
 
+        OutputSink out = new OutputSink(output.out());
+        out.record(cache.maxLength());
+        long rows = 0;
+
         if (!bookData.isEmpty()) {
-            System.out.println("Grouped data by " + groupBy);
+            out.println("Grouped data by " + groupBy);
 
             if (groupBy.equals("AUTHOR")) {
-                authorPrinting(authorGrouping(bookData), data);
+                rows = authorPrinting(authorGrouping(data.getAuthorTitles()), out);
 
             } else if (groupBy.equals("TITLE")) {
-                titlePrinting(titleGrouping(bookData));
+                rows = titlePrinting(data, out);
             }
 
         } else {
-            System.out.println("The library has no book entries.");
+            out.println("The library has no book entries.");
         }
+        out.flush();
+
+        // a result rendered while the library changed is not cached
+        String rendered = out.recorded();
+        if (rendered != null && data.getVersion() == version) {
+            cache.put(query, version, rendered);
+        }
+
+        event.rows = rows;
+        event.cached = false;
+        event.commit();
     }
 
     /**
      * Initialises the HashMap with key using ALPHABET constant and values of empty list.
+     * @param <T> type of the values grouped
      * @return HashMap with the key being all characters of the alphabet and one non alphabet character ("0")
      *         and the values being an empty list
      */
-    private HashMap<Character, List<String>> initialiseHashMap() {
-        HashMap<Character, List<String>> dataBookSorted = new HashMap<Character, List<String>>();
+    private <T> HashMap<Character, List<T>> initialiseHashMap() {
+        HashMap<Character, List<T>> dataBookSorted = new HashMap<Character, List<T>>();
 
         for (char character : ALPHABET) {
-            List<String> values = new ArrayList<>();
+            List<T> values = new ArrayList<>();
             dataBookSorted.put(character, values);
         }
 
@@ -89,119 +123,73 @@ public class GroupCmd extends LibraryCommand {
     }
 
     /**
-     * Adds all titles to the appropriate key of HashMap if the title begins with same first letter.
-     * @param bookData book data from library.
-     * @return HashMap of book titles sorted alphabetically and alphabet and one non alphabetical character as key.
+     * Prints the title of the books alphabetically with headers, straight from the sorted
+     * title groups of the library. Groups without titles are skipped.
+     * @param data library the titles are taken from
+     * @param out sink the groups are written to
+     * @return number of titles printed
      */
-    private HashMap<Character, List<String>> titleGrouping(List<BookEntry> bookData) {
-        Objects.requireNonNull(bookData, "ERROR: BOOK DATA CANNOT BE NULL");
-
-        HashMap<Character, List<String>> dataBookSorted = initialiseHashMap();
-
-        for (BookEntry book : bookData) {
-            List<String> values;
-            char firstLetter = book.getTitle().toUpperCase().charAt(0);
-
-            if (Character.isLetter(firstLetter)) {
-                values = dataBookSorted.get(firstLetter);
-                values.add(book.getTitle());
-                dataBookSorted.replace(firstLetter, values);
-            } else {
-                List<String> temp = dataBookSorted.get(ALPHABET[26]);
-                temp.add(book.getTitle());
-                dataBookSorted.replace(ALPHABET[26], temp);
-            }
-        }
-
-        return dataBookSorted;
-    }
-
-    /**
-     * Prints the title of the books alphabetically with headers.
-     * @param dataBookSorted HashMap with book title as values, ALPHABET constant as key
-     */
-    private void titlePrinting(HashMap<Character, List<String>> dataBookSorted){
-        for (char key: dataBookSorted.keySet()) {
-            List<String> value = dataBookSorted.get(key);
-
-            Objects.requireNonNull(value, "ERROR CANNOT BE NULL");
-
-            if (key == ALPHABET[26] && !value.isEmpty()) {
-                System.out.println("## [0-9]");
-                for (String titles: value) {
-                    System.out.println("   " + titles);
-                }
-            } else if (Character.isLetter(key) && !value.isEmpty()) {
-                System.out.println("## " + key);
-                for (String titles: value) {
-                    System.out.println("   " + titles);
+    private long titlePrinting(LibraryData data, OutputSink out) {
+        long rows = 0;
+        for (int group = 0; group < TitleGroupIndex.GROUP_COUNT; group++) {
+            NavigableMap<String, Integer> titles = data.getTitleGroup(group);
+
+            if (!titles.isEmpty()) {
+                out.println("## " + TitleGroupIndex.groupName(group));
+                for (Map.Entry<String, Integer> title : titles.entrySet()) {
+                    for (int i = 0; i < title.getValue(); i++) {
+                        out.println("   " + title.getKey());
+                    }
+                    rows += title.getValue();
                 }
             }
         }
+        return rows;
     }
 
     /**
-     * Add authors to values of bookDataSorted, only if first letter of author is equal to key. No repeated authors.
-     * @param bookData All book data from library
-     * @return HashMap dataBookSorted, key is ALPHABET constant and values are authors
+     * Add authors to values of bookDataSorted, only if first letter of author is equal to key. Authors not
+     * starting with a letter are added to the non alphabet character.
+     * @param authorTitles all distinct authors from library with their titles, in the order they first appear in
+     * @return HashMap dataBookSorted, key is ALPHABET constant and values are authors with their titles
      */
-    private HashMap<Character, List<String>> authorGrouping(List<BookEntry> bookData){
-        HashMap<Character, List<String>> dataBookSorted = initialiseHashMap();
-
-        for (BookEntry book : bookData) {
-
-            String[] authors = book.getAuthors();
-            List<String> values;
-            for (String author : authors) {
-                boolean authorAlreadyThere = false;
-
-                char firstLetter = author.toUpperCase().charAt(0);
-                values = dataBookSorted.get(firstLetter);
-                for (String value : values) {
-                    if (value.equals(author)) {
-                        authorAlreadyThere = true;
-                    }
-                }
-                if (!authorAlreadyThere) {
-                    values.add(author);
-                    dataBookSorted.replace(firstLetter, values);
-                }
+    private HashMap<Character, List<Map.Entry<String, List<String>>>> authorGrouping(
+            List<Map.Entry<String, List<String>>> authorTitles) {
+        HashMap<Character, List<Map.Entry<String, List<String>>>> dataBookSorted = initialiseHashMap();
+
+        for (Map.Entry<String, List<String>> author : authorTitles) {
+            String name = author.getKey();
+            List<Map.Entry<String, List<String>>> values =
+                    name.isEmpty() ? null : dataBookSorted.get(name.toUpperCase().charAt(0));
+            if (values == null) {
+                values = dataBookSorted.get(ALPHABET[26]);
             }
+            values.add(author);
         }
         return dataBookSorted;
     }
 
     /**
-     * Prints authors as headers and then checks what books each author has written, if the author wrote them then
-     * the book title is printed
-     * @param dataBookSorted HashMap with alphabet as key and authors as values.
-     * @param data Book data that has all book entries
+     * Prints authors as headers followed by the titles of all books each author has written.
+     * @param dataBookSorted HashMap with alphabet as key and authors with their titles as values.
+     * @param out sink the groups are written to
+     * @return number of titles printed
      */
-    private void authorPrinting(HashMap<Character, List<String>> dataBookSorted, LibraryData data){
-        List<BookEntry> bookData = data.getBookData();
-
+    private long authorPrinting(HashMap<Character, List<Map.Entry<String, List<String>>>> dataBookSorted,
+                                OutputSink out){
+        long rows = 0;
         for (char key : dataBookSorted.keySet()) {
-            List<String> value = dataBookSorted.get(key);
+            List<Map.Entry<String, List<String>>> value = dataBookSorted.get(key);
             Objects.requireNonNull(value, "ERROR CANNOT BE NULL");
 
-            if (!value.isEmpty()) {
-                for (String author : value) {
-                    System.out.println("## " + author);
-                    for (BookEntry book : bookData) {
-                        List allAuthors = Arrays.asList(book.getAuthors());
-                        if (allAuthors.contains(author)) {
-                            System.out.println("   " + book.getTitle());
-
-                        }
-                    }
+            for (Map.Entry<String, List<String>> author : value) {
+                out.println("## " + author.getKey());
+                for (String title : author.getValue()) {
+                    out.println("   " + title);
+                    rows++;
                 }
             }
         }
+        return rows;
     }
 }
-
-
-
-
-
-
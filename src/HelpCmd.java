@@ -24,10 +24,11 @@ public class HelpCmd extends LibraryCommand {
      * and corresponding usage to the console.
      *
      * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
      */    
     @Override
-    public void execute(LibraryData data) {       
-        System.out.println(helpOutput);
+    public void execute(LibraryData data, CommandOutput output) {       
+        output.out().println(helpOutput);
     }
 
     private String buildHelpOutput() {
@@ -41,6 +42,10 @@ public class HelpCmd extends LibraryCommand {
         bld.append(padding).append(CommandType.SEARCH).append(" <value>");
         bld.append(padding).append(CommandType.REMOVE).append(" TITLE|AUTHOR <value>");
         bld.append(padding).append(CommandType.GROUP).append(" TITLE|AUTHOR");
+        bld.append(padding).append(CommandType.SAVE).append(" path/to/snapshot");
+        bld.append(padding).append(CommandType.LOAD).append(" path/to/snapshot");
+        bld.append(padding).append(CommandType.STATS);
+        bld.append(padding).append(CommandType.SUGGEST).append(" TITLE|AUTHOR <prefix>");
 
         return bld.toString();
     }
@@ -0,0 +1,154 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of durations with log-linear buckets.
+ *
+ * Every power of two is split into SUB_BUCKET_COUNT equally wide buckets, so any recorded
+ * value is kept with a relative error below 1 / SUB_BUCKET_COUNT, from single nanoseconds up
+ * to Long.MAX_VALUE, in a fixed number of counters. Recording takes two atomic increments
+ * and never allocates.
+ */
+public class LatencyHistogram {
+
+    /** Number of bits of a value kept exactly below its highest bit. */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /** Number of buckets every power of two is split into. */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /** Number of buckets covering all non-negative long values. */
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    /** Number of values recorded per bucket. */
+    private final AtomicLongArray counts;
+
+    /** Number of values recorded. */
+    private final LongAdder count;
+
+    /** Sum of all values recorded. */
+    private final LongAdder total;
+
+    /** Create an empty histogram. */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKET_COUNT);
+        count = new LongAdder();
+        total = new LongAdder();
+    }
+
+    /**
+     * Record a duration, negative durations are recorded as 0.
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        total.add(value);
+    }
+
+    /**
+     * Record the same duration several times.
+     * @param nanos duration in nanoseconds
+     * @param times number of times the duration is recorded
+     */
+    public void record(long nanos, long times) {
+        if (times <= 0) {
+            return;
+        }
+        long value = Math.max(nanos, 0);
+        counts.addAndGet(bucketOf(value), times);
+        count.add(times);
+        total.add(value * times);
+    }
+
+    /**
+     * @return number of values recorded
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return mean of all values recorded, 0 if none has been recorded
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * The value below or at which the given share of all recorded values lies.
+     * The result is the largest value of the bucket the percentile falls into.
+     * @param percentile share of the values between 0 and 100
+     * @return value at the percentile, 0 if no value has been recorded
+     * @throws IllegalArgumentException if the percentile is outside 0 to 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+
+        long[] snapshot = new long[BUCKET_COUNT];
+        long recorded = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @return largest value recorded, rounded up to the end of its bucket, 0 if none has been recorded
+     */
+    public long getMax() {
+        for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+            if (counts.get(i) != 0) {
+                return highestValueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Find the bucket of a value.
+     * @param value non-negative value
+     * @return index of the bucket
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Find the largest value of a bucket.
+     * @param bucket index of the bucket
+     * @return largest value falling into the bucket
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowest = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowest + ((1L << shift) - 1);
+    }
+}
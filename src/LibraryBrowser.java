@@ -1,4 +1,20 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * The main library browser module which 
@@ -7,31 +23,231 @@ import java.util.Scanner;
  */
 public class LibraryBrowser {
 
+    /** Number of characters buffered when reading a command script. */
+    public static final int SCRIPT_BUFFER_SIZE = 1 << 16;
+
+    /** Number of commands parsed ahead of the one executed. */
+    private static final int PARSE_AHEAD = 1 << 10;
+
+    /** Number of bytes of command output buffered in batch mode. */
+    private static final int BATCH_OUTPUT_BUFFER_SIZE = 1 << 16;
+
     /** Book data currently loaded. */
     private final LibraryData data;
     /** Create and handle commands created via user input. */
     private final CommandInterpreter cmdIntrp;
     /** 
-     * Used to read user input from StdIO. 
+     * Used to read user input from StdIO, created once the browser is run interactively.
      * Only close shortly before program exit.
      */
-    private final Scanner stdInScan;
+    private Scanner stdInScan;
 
     /**
      * Create library browser.
      */
     public LibraryBrowser() {
-        data = new LibraryData();
+        this(new LibraryData());
+    }
+
+    /**
+     * Create library browser working on the given book data.
+     * @param data book data to be browsed
+     * @throws NullPointerException if the given data is null
+     */
+    public LibraryBrowser(LibraryData data) {
+        this.data = Objects.requireNonNull(data, "Given data must not be null.");
         cmdIntrp = new CommandInterpreter();
-        stdInScan = new Scanner(System.in);
+        stdInScan = null;
     }
 
     /** Run the library browser and start the corresponding main loop. */
     public void run() {
+        stdInScan = new Scanner(System.in);
         mainLoop();
         stdInScan.close();
     }
 
+    /**
+     * Run all commands of the given script without prompting, until the script ends or
+     * an EXIT command is reached.
+     *
+     * A separate thread reads and parses the script ahead of the command executed, up to
+     * the first EXIT. Error messages printed while parsing a line are kept with it and only
+     * printed once it is executed. Consecutive ADD commands are loaded together. The output
+     * is the same as if the commands had been entered one by one, except for the prompts.
+     * Once done, the time taken by every command type is printed to standard error.
+     *
+     * @param script command script, one command per line; it is not closed
+     * @throws NullPointerException if the given script is null
+     */
+    public void runBatch(Reader script) {
+        Objects.requireNonNull(script, "Given script must not be null.");
+
+        BlockingQueue<ParsedLine> parsed = new ArrayBlockingQueue<>(PARSE_AHEAD);
+        Thread parser = new Thread(() -> parseScript(script, parsed), "library-script-parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        PrintStream console = System.err;
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, BATCH_OUTPUT_BUFFER_SIZE),
+                false, Charset.defaultCharset());
+        // error messages flush the regular output first, so both keep their order
+        PrintStream err = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                out.flush();
+                console.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                out.flush();
+                console.write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+                console.flush();
+            }
+        }, true, Charset.defaultCharset());
+        CommandOutput output = new CommandOutput(out, err);
+        Map<CommandType, long[]> timings = new EnumMap<>(CommandType.class);
+
+        try {
+            ParsedLine next = parsed.take();
+            printParseErrors(next, err);
+            while (next.line != null) {
+                ParsedLine current = next;
+                next = null;
+
+                if (current.command == null) {
+                    err.println("ERROR: Given command input is invalid: " + current.line);
+                } else if (current.command instanceof ExitCmd) {
+                    break;
+                } else if (current.command instanceof AddCmd) {
+                    List<Path> files = new ArrayList<>();
+                    files.add(((AddCmd) current.command).getFilePath());
+                    // only ADDs already parsed are joined, so a slow script is not waited for
+                    next = parsed.poll();
+                    while (next != null && next.command instanceof AddCmd && next.errors == null) {
+                        files.add(((AddCmd) next.command).getFilePath());
+                        next = parsed.poll();
+                    }
+
+                    long start = System.nanoTime();
+                    data.loadData(files, output);
+                    long nanos = System.nanoTime() - start;
+                    record(timings, CommandType.ADD, files.size(), nanos);
+                    if (LibraryMetrics.ENABLED) {
+                        LibraryMetrics.recordExecute(CommandType.ADD, files.size(), nanos);
+                    }
+                } else {
+                    long start = System.nanoTime();
+                    cmdIntrp.executeCommand(current.command, data, output);
+                    record(timings, current.command.getType(), 1, System.nanoTime() - start);
+                }
+
+                if (next == null) {
+                    next = parsed.take();
+                }
+                printParseErrors(next, err);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            out.flush();
+            parser.interrupt();
+        }
+
+        printTimings(timings);
+    }
+
+    /**
+     * Print the error messages of a parsed line, if there are any.
+     * @param parsedLine parsed line about to be executed
+     * @param err stream error messages are printed to
+     */
+    private static void printParseErrors(ParsedLine parsedLine, PrintStream err) {
+        if (parsedLine.errors != null) {
+            err.write(parsedLine.errors, 0, parsedLine.errors.length);
+        }
+    }
+
+    /**
+     * Read and parse the lines of a command script up to the first EXIT, run by the
+     * parse-ahead thread. The end of the script is marked by a line that is null.
+     * @param script command script
+     * @param parsed queue receiving every parsed line
+     */
+    private void parseScript(Reader script, BlockingQueue<ParsedLine> parsed) {
+        // the parser thread has its own interpreter and output, so none of its state is shared
+        CommandInterpreter parserIntrp = new CommandInterpreter();
+        ByteArrayOutputStream parseErrors = new ByteArrayOutputStream();
+        PrintStream err = new PrintStream(parseErrors, true, Charset.defaultCharset());
+        CommandOutput parseOutput = new CommandOutput(err, err);
+        BufferedReader reader = new BufferedReader(script, SCRIPT_BUFFER_SIZE);
+        try {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    LibraryCommand command = parserIntrp.parseCommand(line, parseOutput);
+                    parsed.put(new ParsedLine(line, command, takeErrors(parseErrors)));
+                    if (command instanceof ExitCmd) {
+                        // nothing after EXIT is executed, so it is not parsed either
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                err.println("ERROR: Reading command script failed: " + e);
+            }
+            parsed.put(new ParsedLine(null, null, takeErrors(parseErrors)));
+        } catch (InterruptedException e) {
+            // the batch has ended early
+        }
+    }
+
+    /**
+     * Take the error messages collected so far.
+     * @param parseErrors stream the messages have been written to
+     * @return the messages or null if there are none
+     */
+    private static byte[] takeErrors(ByteArrayOutputStream parseErrors) {
+        if (parseErrors.size() == 0) {
+            return null;
+        }
+        byte[] errors = parseErrors.toByteArray();
+        parseErrors.reset();
+        return errors;
+    }
+
+    /**
+     * Add the time taken by commands to the timings.
+     * @param timings number of commands and nanoseconds taken per command type
+     * @param type type of the commands
+     * @param count number of commands executed
+     * @param nanos time taken by the commands
+     */
+    private static void record(Map<CommandType, long[]> timings, CommandType type, int count, long nanos) {
+        long[] timing = timings.computeIfAbsent(type, t -> new long[2]);
+        timing[0] += count;
+        timing[1] += nanos;
+    }
+
+    /**
+     * Print the number of commands and the time taken per command type to standard error.
+     * @param timings number of commands and nanoseconds taken per command type
+     */
+    private static void printTimings(Map<CommandType, long[]> timings) {
+        StringBuilder summary = new StringBuilder("Batch timing summary:");
+        for (Map.Entry<CommandType, long[]> timing : timings.entrySet()) {
+            long count = timing.getValue()[0];
+            long nanos = timing.getValue()[1];
+            summary.append(String.format("%n  %-7s %8d commands %12.3f ms total %10.3f ms average",
+                    timing.getKey(), count, nanos / 1e6, nanos / 1e6 / count));
+        }
+        System.err.println(summary);
+    }
+
     /**
      * Main loop of the library browser programme.
      * 
@@ -76,4 +292,29 @@ public class LibraryBrowser {
             return null;
         }
     }
+
+    /** A line of a command script together with the command parsed from it. */
+    private static class ParsedLine {
+
+        /** Line of the script, null at the end of the script. */
+        private final String line;
+
+        /** Command parsed from the line, null if the line is invalid. */
+        private final LibraryCommand command;
+
+        /** Error messages printed while reading and parsing the line, null if there are none. */
+        private final byte[] errors;
+
+        /**
+         * Create a parsed line.
+         * @param line line of the script, null at the end of the script
+         * @param command command parsed from the line, null if the line is invalid
+         * @param errors error messages printed while parsing the line, null if there are none
+         */
+        ParsedLine(String line, LibraryCommand command, byte[] errors) {
+            this.line = line;
+            this.command = command;
+            this.errors = errors;
+        }
+    }
 }
@@ -9,9 +9,12 @@ public abstract class LibraryCommand {
 	/** This commands specific type. */
 	private CommandType type;
 
+	/** Output context errors are printed to while the arguments are parsed, null afterwards. */
+	private CommandOutput parseOutput;
+
 	/**
 	 * Create the specified command and initialise it with 
-	 * the given command argument.
+	 * the given command argument, printing parse errors to System.err.
 	 * 
 	 * @param type specific command type
      * @param argumentInput argument input as expected by the extending subclass.
@@ -19,12 +22,32 @@ public abstract class LibraryCommand {
 	 * @throws NullPointerException if any of the given parameters are null.
 	 */
 	public LibraryCommand(CommandType type, String argumentInput) {
+		this(type, argumentInput, CommandOutput.standard());
+	}
+
+	/**
+	 * Create the specified command and initialise it with 
+	 * the given command argument, printing parse errors to the given output context.
+	 * 
+	 * @param type specific command type
+     * @param argumentInput argument input as expected by the extending subclass.
+     * @param output output context errors found while parsing the argument are printed to.
+     * @throws IllegalArgumentException if given arguments are invalid
+	 * @throws NullPointerException if any of the given parameters are null.
+	 */
+	public LibraryCommand(CommandType type, String argumentInput, CommandOutput output) {
 		Objects.requireNonNull(type, "Given type must not be null.");
 		Objects.requireNonNull(argumentInput, "Given argument input must not be null.");
+		Objects.requireNonNull(output, "Given output must not be null.");
 		this.type = type;
 
-		if (!parseArguments(argumentInput)) {
-		    throw new IllegalArgumentException("Invalid argument for " + type + " command: " + argumentInput);
+		parseOutput = output;
+		try {
+			if (!parseArguments(argumentInput)) {
+			    throw new IllegalArgumentException("Invalid argument for " + type + " command: " + argumentInput);
+			}
+		} finally {
+			parseOutput = null;
 		}
 	}
 
@@ -36,21 +59,42 @@ public abstract class LibraryCommand {
 		return type;
 	}
 
+	/**
+	 * Execute the specific command, printing to System.out and System.err.
+	 * 
+	 * @param data book data to be considered for command execution.
+	 */
+	public void execute(LibraryData data) {
+		execute(data, CommandOutput.standard());
+	}
+
 	/**
 	 * Execute the specific command.
 	 * 
 	 * Subclasses must override this method to specify corresponding behaviour.
+	 * All output has to be printed to the given output context.
 	 * 
 	 * @param data book data to be considered for command execution.
+	 * @param output output context of this execution.
 	 */
-	public abstract void execute(LibraryData data);
+	public abstract void execute(LibraryData data, CommandOutput output);
+
+	/**
+	 * Get the output context errors found while parsing the arguments are printed to.
+	 * Only to be used by parseArguments.
+	 * 
+	 * @return output context given on creation of this command.
+	 */
+	protected CommandOutput getParseOutput() {
+		return parseOutput;
+	}
 
 	/**
 	 * Parses the given command arguments and initialised necessary
 	 * parameters. In this default version, a blank argument is expected.
 	 * 
 	 * Subclasses should override this method for more specific argument
-	 * parsing.
+	 * parsing. Errors are printed to getParseOutput.
 	 * 
 	 * @param argumentInput argument input for this command
 	 * @return true if the given argument is blank, false otherwise
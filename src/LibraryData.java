@@ -1,28 +1,477 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
 /** 
  * Class responsible for handling currently loaded
  * book data and loading additional data from file.
+ *
+ * A library can be used by several threads at once. Changes are made under a write
+ * lock and queries over the indexes run under a read lock, so queries run in parallel
+ * with each other. getBookData hands out an immutable list of the current books, which is
+ * created under the read lock by the first call after a change and then shared without
+ * any locking until the next change.
  */
 public class LibraryData {
 
-    /** Currently loaded book data. */
-    private final List<BookEntry> books;
+    /** Smallest number of removed slots that makes a removal compact the library. */
+    private static final int MIN_COMPACTION_SIZE = 1 << 10;
 
-    /** Create a new and empty book library. */
+    /** Number of loaded entries merged under a single write lock. */
+    private static final int MERGE_BATCH_SIZE = 1 << 12;
+
+    /** Number of files read and parsed at once when several files are loaded together. */
+    private static final int FILE_BATCH_SIZE = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+
+    /** Guards the book store and all indexes but the title groups. */
+    private final StampedLock lock;
+
+    /** Number of changes made so far. */
+    private volatile long version;
+
+    /** Immutable list of all books in library order, only valid while the version is the same. */
+    private volatile PublishedBooks bookSnapshot;
+
+    /** Whether the library changed since the write lock was taken, guarded by the write lock. */
+    private boolean unpublished;
+
+    /**
+     * Currently loaded book data in library order. Every book keeps its position (slot)
+     * until the library is compacted, a removed book leaves an empty slot behind.
+     */
+    private final BookStore books;
+
+    /** Mode used for storing the book data. */
+    private final StorageMode storageMode;
+
+    /** Number of empty slots left behind by removed books. */
+    private int removedCount;
+
+    /**
+     * Hash index over the currently loaded book data, used for constant time
+     * duplicate detection. Always holds exactly the slots of the books not removed.
+     */
+    private final SlotHashIndex bookIndex;
+
+    /** Index over the book titles used for searching. */
+    private final TitleSearchIndex searchIndex;
+
+    /** Canonical author names of all books, every name is kept once. */
+    private final AuthorDictionary authorDictionary;
+
+    /** Slots of all books written by each author, indexed by author id, null if the author has no books. */
+    private final List<PostingList> authorIndex;
+
+    /** Slots of all books not removed, by the hash code of their title. */
+    private final SlotHashIndex titleIndex;
+
+    /** Titles of all books not removed, sorted within their groups. */
+    private final TitleGroupIndex titleGroups;
+
+    /** Titles of all books not removed, for completing title prefixes. */
+    private final SuggestIndex titleSuggestions;
+
+    /** Authors of all books not removed, for completing author prefixes. */
+    private final SuggestIndex authorSuggestions;
+
+    /** Mode used when loading additional data from file. */
+    private volatile LoadMode loadMode;
+
+    /** Journal all changes are recorded in, null if changes are not journaled. */
+    private volatile LibraryJournal journal;
+
+    /** Rendered results of recent queries, valid as long as the version does not change. */
+    private final QueryCache queryCache;
+
+    /** Create a new and empty book library keeping every book as an object. */
     public LibraryData() {
-        books = new ArrayList<>();
+        this(StorageMode.OBJECTS);
+    }
+
+    /**
+     * Create a new and empty book library.
+     * @param storageMode mode used for storing the book data
+     * @throws NullPointerException if the given storage mode is null
+     */
+    public LibraryData(StorageMode storageMode) {
+        this.storageMode = Objects.requireNonNull(storageMode, "Given storage mode must not be null.");
+        lock = new StampedLock();
+        version = 0;
+        authorDictionary = new AuthorDictionary();
+        books = storageMode == StorageMode.COLUMNAR ? new ColumnarBookStore(authorDictionary) : new ObjectBookStore();
+        bookSnapshot = null;
+        unpublished = false;
+        removedCount = 0;
+        bookIndex = new SlotHashIndex();
+        searchIndex = new TitleSearchIndex();
+        authorIndex = new ArrayList<>();
+        titleIndex = new SlotHashIndex();
+        titleGroups = new TitleGroupIndex();
+        titleSuggestions = new SuggestIndex();
+        authorSuggestions = new SuggestIndex();
+        loadMode = LoadMode.STANDARD;
+        journal = null;
+        queryCache = new QueryCache(QueryCache.DEFAULT_BUDGET);
+    }
+
+    /**
+     * Get the mode used for storing the book data.
+     * @return storage mode of this library
+     */
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * Get the number of changes made so far. The version changes once a change is
+     * complete, right before its write lock is released. Results computed from
+     * the library stay valid as long as the version does not change.
+     * @return current version of the library
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the cache holding the rendered results of recent queries on this library.
+     * @return query cache of this library
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Get the mode used when loading additional data from file.
+     * @return current load mode
+     */
+    public LoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    /**
+     * Set the mode used when loading additional data from file.
+     * @param loadMode load mode to be used from now on
+     * @throws NullPointerException if the given load mode is null
+     */
+    public void setLoadMode(LoadMode loadMode) {
+        this.loadMode = Objects.requireNonNull(loadMode, "Given load mode must not be null.");
+    }
+
+    /**
+     * Restore the library from the journal in the given directory and record all
+     * further changes there. The library must not be journaled yet.
+     *
+     * Books loaded before, for example from a snapshot, are not journaled; the journal
+     * is replayed on top of them. Once the journal holds a snapshot of its own, that
+     * snapshot holds the complete library state and replaces the books loaded before.
+     *
+     * @param directory directory holding the snapshots and journals, created if missing
+     * @return true if the journal was opened successfully, false otherwise
+     * @throws NullPointerException if the given directory is null
+     * @throws IllegalStateException if the library is already journaled
+     */
+    public boolean openJournal(Path directory) {
+        return openJournal(directory, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Restore the library from the journal in the given directory and record all
+     * further changes there, see openJournal(Path). The library must not be journaled yet.
+     * @param directory directory holding the snapshots and journals, created if missing
+     * @param compactionThreshold journal size in bytes after which the journal is compacted into a snapshot
+     * @return true if the journal was opened successfully, false otherwise
+     * @throws NullPointerException if the given directory is null
+     * @throws IllegalStateException if the library is already journaled
+     * @throws IllegalArgumentException if the compaction threshold is not positive
+     */
+    public boolean openJournal(Path directory, long compactionThreshold) {
+        Objects.requireNonNull(directory, "Given directory must not be null.");
+
+        int replaced = 0;
+        int loaded;
+        int available;
+        long stamp = lock.writeLock();
+        try {
+            if (journal != null) {
+                throw new IllegalStateException("Journal can only be opened once.");
+            }
+            loaded = books.size() - removedCount;
+            if (loaded > 0 && LibraryJournal.hasSnapshot(directory)) {
+                // the journal snapshot already holds these books, minus those removed since
+                replaced = loaded;
+                removeAllBooks();
+                loaded = 0;
+            }
+            journal = LibraryJournal.open(directory, this, compactionThreshold);
+            available = books.size() - removedCount;
+        } catch (IOException | SecurityException e) {
+            System.err.println("ERROR: Opening journal failed: " + e);
+            return false;
+        } finally {
+            unlockWrite(stamp);
+        }
+
+        if (replaced > 0) {
+            System.out.println(replaced + " book entries loaded before replaced by the journal snapshot.");
+        }
+        if (loaded > 0) {
+            System.out.println(available + " book entries available after replaying journal: " + directory);
+        } else {
+            System.out.println(available + " book entries restored from journal: " + directory);
+        }
+        return true;
+    }
+
+    /** Make all journaled changes durable and close the journal, if there is one. */
+    public void closeJournal() {
+        LibraryJournal closed;
+        long stamp = lock.writeLock();
+        try {
+            closed = journal;
+            journal = null;
+        } finally {
+            unlockWrite(stamp);
+        }
+
+        if (closed != null) {
+            try {
+                closed.close();
+            } catch (IOException e) {
+                System.err.println("ERROR: Closing journal failed: " + e);
+            }
+        }
     }
 
     /** 
      * Get all available book entries.
+     *
+     * The returned list cannot be modified, entries have to be removed
+     * via removeByAuthor or removeByTitle so the indexes stay in sync.
+     * It is an immutable snapshot: later changes to the library do not show up in it.
+     * The first call after a change creates it under the read lock, taking time
+     * proportional to the number of slots, later calls share it without any locking.
+     * With columnar storage the entries are views created on every access.
+     *
      * @return available book entries
      */
     public List<BookEntry> getBookData() {
-        return books;
+        PublishedBooks published = bookSnapshot;
+        if (published != null && published.version == version) {
+            return published.books;
+        }
+
+        long stamp = lock.readLock();
+        try {
+            // the version cannot change under the read lock, readers creating the list at once agree
+            published = new PublishedBooks(version, books.asList());
+            bookSnapshot = published;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return published.books;
+    }
+
+    /**
+     * Find all books whose title contains the given search word, ignoring case.
+     * @param searchWord word to be searched for in the book titles
+     * @return matching book entries in library order
+     * @throws NullPointerException if the given search word is null
+     */
+    public List<BookEntry> searchTitles(String searchWord) {
+        Objects.requireNonNull(searchWord, "Given search word must not be null.");
+
+        String query = searchWord.toLowerCase();
+        return readLocked(() -> {
+            List<BookEntry> hits = new ArrayList<>();
+            collectTitleHits(query, hits);
+            return hits;
+        });
+    }
+
+    /**
+     * Search for all books whose title matches the given boolean query.
+     * @param query parsed query
+     * @return list of matching books in library order
+     * @throws NullPointerException if the given query is null
+     */
+    public List<BookEntry> searchTitles(TitleQuery query) {
+        Objects.requireNonNull(query, "Given query must not be null.");
+
+        return readLocked(() -> {
+            List<BookEntry> hits = new ArrayList<>();
+            PostingList slots = query.evaluate(new IndexQuerySource());
+            for (int i = 0; i < slots.size(); i++) {
+                BookEntry book = books.get(slots.get(i));
+                if (book != null) {
+                    hits.add(book);
+                }
+            }
+            return hits;
+        });
+    }
+
+    /**
+     * Collect all books whose title contains the given query.
+     * Must be called while holding the read or write lock.
+     * @param query lower case search word
+     * @param hits list the matching books are added to in library order
+     */
+    private void collectTitleHits(String query, List<BookEntry> hits) {
+        if (query.isEmpty() || query.indexOf(' ') != -1) {
+            // the index only answers single words, anything else needs a full scan
+            for (int slot = 0; slot < books.size(); slot++) {
+                if (!books.isRemoved(slot) && books.getTitle(slot).toLowerCase().contains(query)) {
+                    hits.add(books.get(slot));
+                }
+            }
+        } else {
+            PostingList slots = searchIndex.search(query);
+            for (int i = 0; i < slots.size(); i++) {
+                BookEntry book = books.get(slots.get(i));
+                if (book != null) {
+                    hits.add(book);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the titles of all available books in a title group, already sorted.
+     * @param group index of the group, see TitleGroupIndex
+     * @return read-only view of the sorted titles with the number of books having them
+     * @throws IndexOutOfBoundsException if the group does not exist
+     */
+    public NavigableMap<String, Integer> getTitleGroup(int group) {
+        return titleGroups.titles(group);
+    }
+
+    /**
+     * Find the titles of the available books starting with the given prefix, ignoring case.
+     * @param prefix prefix of the titles
+     * @param limit largest number of titles returned
+     * @return matching titles, those of the most books first
+     * @throws NullPointerException if the given prefix is null
+     * @throws IllegalArgumentException if the given limit is negative
+     */
+    public List<String> suggestTitles(String prefix, int limit) {
+        return suggest(titleSuggestions, prefix, limit);
+    }
+
+    /**
+     * Find the authors of the available books starting with the given prefix, ignoring case.
+     * @param prefix prefix of the author names
+     * @param limit largest number of authors returned
+     * @return matching authors, those of the most books first
+     * @throws NullPointerException if the given prefix is null
+     * @throws IllegalArgumentException if the given limit is negative
+     */
+    public List<String> suggestAuthors(String prefix, int limit) {
+        return suggest(authorSuggestions, prefix, limit);
+    }
+
+    /**
+     * Complete a prefix from a suggest index.
+     * @param index index of titles or authors
+     * @param prefix prefix to be completed
+     * @param limit largest number of completions returned
+     * @return most frequent completions
+     */
+    private List<String> suggest(SuggestIndex index, String prefix, int limit) {
+        return readLocked(() -> index.complete(prefix, limit));
+    }
+
+    /**
+     * Get the titles of the available books of every author, straight from the author index.
+     * Authors and titles are taken while holding the read lock, so they always agree.
+     * @return every author of the available books with the titles of their books in library order,
+     *         authors in the order they first appear in the library
+     */
+    public List<Map.Entry<String, List<String>>> getAuthorTitles() {
+        return readLocked(() -> {
+            int[] authorIds = collectAuthors();
+            List<Map.Entry<String, List<String>>> authorTitles = new ArrayList<>(authorIds.length);
+            for (int id : authorIds) {
+                // a book listing an author twice is only once in the author's posting list
+                PostingList slots = authorIndex.get(id);
+                List<String> titles = new ArrayList<>();
+                for (int i = 0; i < slots.size(); i++) {
+                    if (!books.isRemoved(slots.get(i))) {
+                        titles.add(books.getTitle(slots.get(i)));
+                    }
+                }
+                authorTitles.add(Map.entry(authorDictionary.nameOf(id), titles));
+            }
+            return authorTitles;
+        });
+    }
+
+    /**
+     * Collect the ids of all authors of the available books in the order they first appear.
+     * Must be called while holding the read or write lock.
+     * @return distinct author ids of all available books
+     */
+    private int[] collectAuthors() {
+        // order by the first book of each author, then by the author's position within that book
+        long[] firstAppearance = new long[authorIndex.size()];
+        int count = 0;
+        for (int id = 0; id < authorIndex.size(); id++) {
+            int slot = authorIndex.get(id) == null ? -1 : firstLiveSlot(authorIndex.get(id));
+            if (slot != -1) {
+                // author names are canonical, so the author is found by identity
+                String author = authorDictionary.nameOf(id);
+                String[] bookAuthors = books.getAuthors(slot);
+                int position = 0;
+                while (bookAuthors[position] != author) {
+                    position++;
+                }
+                firstAppearance[count++] = ((long) slot << Integer.SIZE) | position;
+            }
+        }
+
+        Arrays.sort(firstAppearance, 0, count);
+        int[] authorIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            long appearance = firstAppearance[i];
+            String author = books.getAuthors((int) (appearance >>> Integer.SIZE))[(int) appearance];
+            authorIds[i] = authorDictionary.find(author);
+        }
+        return authorIds;
+    }
+
+    /**
+     * Look up the posting list of an author.
+     * @param author name of the author
+     * @return slots of all books of the author or null if the author has no books
+     */
+    private PostingList authorSlots(String author) {
+        int id = authorDictionary.find(author);
+        return id == -1 || id >= authorIndex.size() ? null : authorIndex.get(id);
+    }
+
+    /**
+     * Find the first slot of a posting list that still holds a book.
+     * @param slots posting list
+     * @return first slot with a book or -1 if all books have been removed
+     */
+    private int firstLiveSlot(PostingList slots) {
+        for (int i = 0; i < slots.size(); i++) {
+            if (!books.isRemoved(slots.get(i))) {
+                return slots.get(i);
+            }
+        }
+        return -1;
     }
 
     /**
@@ -32,42 +481,740 @@ public class LibraryData {
      * @throws NullPointerException if the given path is null
      */
     public boolean loadData(Path libraryFile) {
+        return loadData(libraryFile, CommandOutput.standard());
+    }
+
+    /**
+     * Initiate book data loading for the given path, printing all messages to the given output context.
+     * @param libraryFile specified path to book data file
+     * @param output output context messages are printed to
+     * @return true if loading was successful, false otherwise
+     * @throws NullPointerException if the given path or output is null
+     */
+    public boolean loadData(Path libraryFile, CommandOutput output) {
         Objects.requireNonNull(libraryFile, "Given file path must not be null.");
-               
-        LibraryFileLoader loader = new LibraryFileLoader();
-        boolean success = loader.loadFileContent(libraryFile);
-
-        if (success) {
-            List<BookEntry> loaded = loader.parseFileContent();
-            int added = mergeEntries(loaded);
-            System.out.println(added + " new book entries added.");
+        Objects.requireNonNull(output, "Given output must not be null.");
+
+        int added = loadFile(libraryFile, output);
+        commitJournal(output);
+        reportLoad(libraryFile, added, output);
+        return added != -1;
+    }
+
+    /**
+     * Load several book data files, with the same result and messages as calling loadData
+     * for each of them in order, but making the journaled changes durable only once for all
+     * files. The result of every file is reported as soon as it has been loaded, before the
+     * changes are durable.
+     *
+     * Unless the load mode is STREAMING, the files are read and parsed in parallel in
+     * batches of a few files, and the entries of each batch are then merged file by file
+     * in the given order, so duplicates are found just as if the files were loaded one
+     * after another.
+     *
+     * @param libraryFiles specified paths to book data files
+     * @param output output context messages are printed to
+     * @return number of files loaded successfully
+     * @throws NullPointerException if the given list, one of its paths or the output is null
+     */
+    public int loadData(List<Path> libraryFiles, CommandOutput output) {
+        Objects.requireNonNull(libraryFiles, "Given file paths must not be null.");
+        Objects.requireNonNull(output, "Given output must not be null.");
+        for (Path libraryFile : libraryFiles) {
+            Objects.requireNonNull(libraryFile, "Given file path must not be null.");
+        }
+
+        int loaded = 0;
+        LoadMode mode = loadMode;
+        if (mode == LoadMode.STREAMING || libraryFiles.size() == 1) {
+            // streaming keeps a single file in memory at a time, so its files are not read ahead
+            for (Path libraryFile : libraryFiles) {
+                int added = loadFile(libraryFile, output);
+                reportLoad(libraryFile, added, output);
+                if (added != -1) {
+                    loaded++;
+                }
+            }
         } else {
-            System.err.println("ERROR: Loading book data failed for file: " + libraryFile);
+            for (int start = 0; start < libraryFiles.size(); start += FILE_BATCH_SIZE) {
+                List<Path> batch = libraryFiles.subList(start, Math.min(start + FILE_BATCH_SIZE, libraryFiles.size()));
+                List<CompletableFuture<ParsedFile>> parsing = new ArrayList<>(batch.size());
+                for (Path libraryFile : batch) {
+                    parsing.add(CompletableFuture.supplyAsync(() -> parseFile(libraryFile, mode)));
+                }
+
+                for (int i = 0; i < batch.size(); i++) {
+                    ParsedFile parsed = joinParsed(parsing.get(i));
+                    output.err().print(parsed.messages);
+                    int added = parsed.entries == null ? -1 : mergeEntries(parsed.entries, output);
+                    reportLoad(batch.get(i), added, output);
+                    if (added != -1) {
+                        loaded++;
+                    }
+                }
+            }
         }
+        commitJournal(output);
+        return loaded;
+    }
 
-        return success;
+    /**
+     * Read and parse a book data file without merging it, collecting the messages of the loader.
+     * Called by several threads at once.
+     * @param libraryFile path of the book data file
+     * @param mode load mode other than STREAMING
+     * @return parsed entries and messages of the file
+     */
+    private ParsedFile parseFile(Path libraryFile, LoadMode mode) {
+        ByteArrayOutputStream messageBytes = new ByteArrayOutputStream();
+        PrintStream messageStream = new PrintStream(messageBytes, false, StandardCharsets.UTF_8);
+        LibraryFileLoader loader = new LibraryFileLoader(authorDictionary, new CommandOutput(messageStream, messageStream));
+
+        List<BookEntry> entries = null;
+        if (mode == LoadMode.MAPPED) {
+            MappedBookFile mapped = loader.mapFileContent(libraryFile);
+            if (mapped != null) {
+                entries = new ArrayList<>(mapped.rowCount());
+                for (int row = 0; row < mapped.rowCount(); row++) {
+                    entries.add(mapped.materialize(row, authorDictionary));
+                }
+            }
+        } else if (loader.loadFileContent(libraryFile)) {
+            entries = mode == LoadMode.PARALLEL ? loader.parseFileContentParallel() : loader.parseFileContent();
+        }
+
+        messageStream.flush();
+        return new ParsedFile(entries, messageBytes.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Wait for a file to be parsed, passing on anything thrown while parsing it.
+     * @param parsing file being parsed
+     * @return parsed entries and messages of the file
+     */
+    private static ParsedFile joinParsed(CompletableFuture<ParsedFile> parsing) {
+        try {
+            return parsing.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Load a single book data file without making the journaled changes durable.
+     * @param libraryFile specified path to book data file
+     * @param output output context messages are printed to
+     * @return number of book entries added or -1 if loading failed
+     */
+    private int loadFile(Path libraryFile, CommandOutput output) {
+        LibraryFileLoader loader = new LibraryFileLoader(authorDictionary, output);
+        boolean success;
+        int added = 0;
+
+        LoadMode mode = loadMode;
+        if (mode == LoadMode.STREAMING) {
+            List<BookEntry> batch = new ArrayList<>(MERGE_BATCH_SIZE);
+            int[] count = new int[1];
+            success = loader.streamFileContent(libraryFile, entry -> {
+                batch.add(entry);
+                if (batch.size() == MERGE_BATCH_SIZE) {
+                    count[0] += mergeEntries(batch, output);
+                    batch.clear();
+                }
+            });
+            added = count[0] + mergeEntries(batch, output);
+        } else if (mode == LoadMode.MAPPED) {
+            MappedBookFile mapped = loader.mapFileContent(libraryFile);
+            success = mapped != null;
+            if (success) {
+                List<BookEntry> batch = new ArrayList<>(MERGE_BATCH_SIZE);
+                for (int row = 0; row < mapped.rowCount(); row++) {
+                    batch.add(mapped.materialize(row, authorDictionary));
+                    if (batch.size() == MERGE_BATCH_SIZE) {
+                        added += mergeEntries(batch, output);
+                        batch.clear();
+                    }
+                }
+                added += mergeEntries(batch, output);
+            }
+        } else {
+            success = loader.loadFileContent(libraryFile);
+            if (success) {
+                // entries are merged sequentially in file order, so duplicates are found deterministically
+                List<BookEntry> loaded = mode == LoadMode.PARALLEL
+                        ? loader.parseFileContentParallel() : loader.parseFileContent();
+                added = mergeEntries(loaded, output);
+            }
+        }
+
+        return success ? added : -1;
+    }
+
+    /**
+     * Report the result of loading a book data file.
+     * @param libraryFile path of the book data file
+     * @param added number of book entries added or -1 if loading failed
+     * @param output output context the result is printed to
+     */
+    private static void reportLoad(Path libraryFile, int added, CommandOutput output) {
+        if (added != -1) {
+            output.out().println(added + " new book entries added.");
+        } else {
+            output.err().println("ERROR: Loading book data failed for file: " + libraryFile);
+        }
+    }
+
+    /**
+     * Add all book entries of a binary snapshot written by saveSnapshot.
+     * Entries are merged with the data already loaded just like loadData does.
+     * Entries read before an error occurred have already been added.
+     * @param snapshotFile path of the snapshot file
+     * @return true if the snapshot was read successfully, false otherwise
+     * @throws NullPointerException if the given path is null
+     */
+    public boolean loadSnapshot(Path snapshotFile) {
+        return loadSnapshot(snapshotFile, CommandOutput.standard());
+    }
+
+    /**
+     * Add all book entries of a binary snapshot, printing all messages to the given output context.
+     * @param snapshotFile path of the snapshot file
+     * @param output output context messages are printed to
+     * @return true if the snapshot was read successfully, false otherwise
+     * @throws NullPointerException if the given path or output is null
+     */
+    public boolean loadSnapshot(Path snapshotFile, CommandOutput output) {
+        Objects.requireNonNull(snapshotFile, "Given file path must not be null.");
+        Objects.requireNonNull(output, "Given output must not be null.");
+
+        List<BookEntry> batch = new ArrayList<>(MERGE_BATCH_SIZE);
+        int[] count = new int[1];
+        try {
+            LibrarySnapshot.read(snapshotFile, authorDictionary, entry -> {
+                batch.add(entry);
+                if (batch.size() == MERGE_BATCH_SIZE) {
+                    count[0] += mergeEntries(batch, output);
+                    batch.clear();
+                }
+            });
+        } catch (IOException | SecurityException e) {
+            mergeEntries(batch, output);
+            commitJournal(output);
+            output.err().println("ERROR: Loading snapshot failed: " + e);
+            return false;
+        }
+
+        count[0] += mergeEntries(batch, output);
+        commitJournal(output);
+        output.out().println(count[0] + " new book entries added.");
+        return true;
+    }
+
+    /**
+     * Write all available book entries to a binary snapshot.
+     * @param snapshotFile path of the snapshot file, replaced if it exists
+     * @return true if the snapshot was written successfully, false otherwise
+     * @throws NullPointerException if the given path is null
+     */
+    public boolean saveSnapshot(Path snapshotFile) {
+        return saveSnapshot(snapshotFile, CommandOutput.standard());
+    }
+
+    /**
+     * Write all available book entries to a binary snapshot, printing all messages to the given output context.
+     * @param snapshotFile path of the snapshot file, replaced if it exists
+     * @param output output context messages are printed to
+     * @return true if the snapshot was written successfully, false otherwise
+     * @throws NullPointerException if the given path or output is null
+     */
+    public boolean saveSnapshot(Path snapshotFile, CommandOutput output) {
+        Objects.requireNonNull(snapshotFile, "Given file path must not be null.");
+        Objects.requireNonNull(output, "Given output must not be null.");
+
+        List<BookEntry> bookData = getBookData();
+        try {
+            LibrarySnapshot.write(bookData, snapshotFile);
+        } catch (IOException | SecurityException e) {
+            output.err().println("ERROR: Saving snapshot failed: " + e);
+            return false;
+        }
+
+        output.out().println(bookData.size() + " book entries saved to: " + snapshotFile);
+        return true;
+    }
+
+    /**
+     * Add a book entry restored from a journal or snapshot, without journaling it again.
+     * Only called while a journal is opened, with the write lock held.
+     * @param entry restored book entry
+     */
+    void replayAdd(BookEntry entry) {
+        if (!mergeEntry(entry)) {
+            reportDuplicate(entry, CommandOutput.standard());
+        }
+    }
+
+    /**
+     * Remove all books of an author while replaying a journal.
+     * Only called while a journal is opened, with the write lock held.
+     * @param author name of the author
+     */
+    void replayRemoveAuthor(String author) {
+        removeAuthorBooks(author);
+    }
+
+    /**
+     * Remove the first book with a title while replaying a journal.
+     * Only called while a journal is opened, with the write lock held.
+     * @param title title of the book
+     */
+    void replayRemoveTitle(String title) {
+        removeTitleBook(title);
+    }
+
+    /**
+     * @return dictionary holding the canonical author names of this library
+     */
+    AuthorDictionary authorDictionary() {
+        return authorDictionary;
+    }
+
+    /**
+     * Make the journaled changes durable and start a compaction of the journal
+     * once it has grown large. Does nothing if the library is not journaled.
+     * @param output output context errors are printed to
+     */
+    private void commitJournal(CommandOutput output) {
+        LibraryJournal current = journal;
+        if (current == null) {
+            return;
+        }
+
+        try {
+            current.commit();
+            if (current.needsCompaction()) {
+                // no change may slip in between taking the snapshot and starting the new generation
+                long stamp = lock.writeLock();
+                try {
+                    if (current == journal && current.needsCompaction()) {
+                        current.compact(books.asList());
+                    }
+                } finally {
+                    unlockWrite(stamp);
+                }
+            }
+        } catch (IOException e) {
+            output.err().println("ERROR: Writing journal failed: " + e);
+        }
     }
 
     /**
      * Merge the list of book entries with the
      * entries already loaded.
      * 
-     * Duplicate entries will be discarded (This requires .equals to be
-     * implemented for BookEntry).
+     * Duplicate entries will be discarded (This requires .equals and .hashCode
+     * to be implemented for BookEntry).
      * 
      * @param loaded list of book entries to be merged with data already loaded
+     * @param output output context duplicates are reported to
      * @return number of book entries added to the library
      */
-    private int mergeEntries(List<BookEntry> loaded) {
+    private int mergeEntries(List<BookEntry> loaded, CommandOutput output) {
+        LibraryEvents.MergeEntries event = new LibraryEvents.MergeEntries();
+        event.begin();
+        int count = 0;
+        List<BookEntry> duplicates = new ArrayList<>();
+        // merge in batches, so queries are not held up for the whole file
+        for (int start = 0; start < loaded.size(); start += MERGE_BATCH_SIZE) {
+            int end = Math.min(start + MERGE_BATCH_SIZE, loaded.size());
+            long stamp = lock.writeLock();
+            try {
+                for (int i = start; i < end; i++) {
+                    if (mergeEntry(loaded.get(i))) {
+                        count++;
+                    } else {
+                        duplicates.add(loaded.get(i));
+                    }
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+
+            // printing may wait for a slow client, which must not happen while holding the lock
+            for (BookEntry duplicate : duplicates) {
+                reportDuplicate(duplicate, output);
+            }
+            duplicates.clear();
+        }
+
+        event.rows = loaded.size();
+        event.added = count;
+        event.commit();
+        return count;
+    }
+
+    /**
+     * Report a book entry discarded as a duplicate.
+     * @param duplicate discarded book entry
+     * @param output output context the duplicate is reported to
+     */
+    private static void reportDuplicate(BookEntry duplicate, CommandOutput output) {
+        output.out().println("Duplicate entry found for book: " + duplicate);
+    }
+
+    /**
+     * Merge a single book entry with the entries already loaded.
+     * A duplicate entry is discarded, the caller reports it once the lock is released.
+     * Must be called while holding the write lock.
+     *
+     * @param loaded book entry to be merged with data already loaded
+     * @return true if the entry was added, false if it was a duplicate
+     */
+    private boolean mergeEntry(BookEntry loaded) {
+        // every author is looked up in the dictionary once, its id is used from then on
+        String[] loadedAuthors = loaded.getAuthors();
+        int[] authorIds = new int[loadedAuthors.length];
+        for (int i = 0; i < authorIds.length; i++) {
+            authorIds[i] = authorDictionary.idOf(loadedAuthors[i]);
+        }
+        BookEntry entry = canonicalAuthors(loaded, authorIds);
+        int hash = entry.hashCode();
+        if (bookIndex.find(hash, slot -> entry.equals(books.get(slot))) == -1) {
+            int slot = books.add(entry, authorIds);
+            bookIndex.add(hash, slot);
+            searchIndex.add(slot, entry.getTitle());
+            titleIndex.add(entry.getTitle().hashCode(), slot);
+            titleGroups.add(entry.getTitle());
+            titleSuggestions.add(entry.getTitle());
+            changed();
+            if (journal != null) {
+                journal.recordAdd(entry);
+            }
+            for (int id : authorIds) {
+                while (authorIndex.size() <= id) {
+                    authorIndex.add(null);
+                }
+                if (authorIndex.get(id) == null) {
+                    authorIndex.set(id, new PostingList());
+                }
+                authorIndex.get(id).add(slot);
+                authorSuggestions.add(authorDictionary.nameOf(id));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Make sure a book entry uses the canonical author names of this library.
+     * Entries parsed with the dictionary of this library already do.
+     * @param entry book entry
+     * @param authorIds ids of the authors of the entry, in the order of its authors
+     * @return the given entry or a copy of it using the canonical author names
+     */
+    private BookEntry canonicalAuthors(BookEntry entry, int[] authorIds) {
+        String[] authors = entry.getAuthors();
+        String[] canonical = null;
+        for (int i = 0; i < authors.length; i++) {
+            String author = authorDictionary.nameOf(authorIds[i]);
+            if (author != authors[i]) {
+                if (canonical == null) {
+                    canonical = authors.clone();
+                }
+                canonical[i] = author;
+            }
+        }
+
+        return canonical == null ? entry
+                : new BookEntry(entry.getTitle(), canonical, entry.getRating(), entry.getISBN(), entry.getPages());
+    }
+
+    /**
+     * Remove all books written by the given author.
+     * Takes time proportional to the number of books of the author.
+     * @param author name of the author
+     * @return number of book entries removed from the library
+     * @throws NullPointerException if the given author is null
+     */
+    public int removeByAuthor(String author) {
+        return removeByAuthor(author, CommandOutput.standard());
+    }
+
+    /**
+     * Remove all books written by the given author, printing all messages to the given output context.
+     * @param author name of the author
+     * @param output output context messages are printed to
+     * @return number of book entries removed from the library
+     * @throws NullPointerException if the given author or output is null
+     */
+    public int removeByAuthor(String author, CommandOutput output) {
+        Objects.requireNonNull(author, "Given author must not be null.");
+        Objects.requireNonNull(output, "Given output must not be null.");
+
+        int count;
+        long stamp = lock.writeLock();
+        try {
+            count = removeAuthorBooks(author);
+            if (count > 0 && journal != null) {
+                journal.recordRemoveAuthor(author);
+            }
+        } finally {
+            unlockWrite(stamp);
+        }
+
+        if (count > 0) {
+            commitJournal(output);
+        }
+        return count;
+    }
+
+    /**
+     * Remove all books written by the given author.
+     * Must be called while holding the write lock.
+     * @param author name of the author
+     * @return number of book entries removed from the library
+     */
+    private int removeAuthorBooks(String author) {
+        PostingList slots = authorSlots(author);
         int count = 0;
-        for (BookEntry entry : loaded) {
-            if (!books.contains(entry)) {
-                books.add(entry);
-                count++;
-            } else {
-                System.out.println("Duplicate entry found for book: " + entry);
+        if (slots != null) {
+            authorIndex.set(authorDictionary.find(author), null);
+            for (int i = 0; i < slots.size(); i++) {
+                if (!books.isRemoved(slots.get(i))) {
+                    removeSlot(slots.get(i));
+                    count++;
+                }
             }
         }
+
+        compactIfSparse();
         return count;
     }
+
+    /**
+     * Remove the first book in library order with the given title.
+     * @param title title of the book
+     * @return the removed book entry or null if no book has the title
+     * @throws NullPointerException if the given title is null
+     */
+    public BookEntry removeByTitle(String title) {
+        return removeByTitle(title, CommandOutput.standard());
+    }
+
+    /**
+     * Remove the first book in library order with the given title, printing all messages to the given output context.
+     * @param title title of the book
+     * @param output output context messages are printed to
+     * @return the removed book entry or null if no book has the title
+     * @throws NullPointerException if the given title or output is null
+     */
+    public BookEntry removeByTitle(String title, CommandOutput output) {
+        Objects.requireNonNull(title, "Given title must not be null.");
+        Objects.requireNonNull(output, "Given output must not be null.");
+
+        BookEntry book;
+        long stamp = lock.writeLock();
+        try {
+            book = removeTitleBook(title);
+            if (book != null && journal != null) {
+                journal.recordRemoveTitle(title);
+            }
+        } finally {
+            unlockWrite(stamp);
+        }
+
+        if (book != null) {
+            commitJournal(output);
+        }
+        return book;
+    }
+
+    /**
+     * Remove the first book in library order with the given title.
+     * Must be called while holding the write lock.
+     * @param title title of the book
+     * @return the removed book entry or null if no book has the title
+     */
+    private BookEntry removeTitleBook(String title) {
+        int slot = titleIndex.findFirst(title.hashCode(), candidate -> title.equals(books.getTitle(candidate)));
+        if (slot == -1) {
+            return null;
+        }
+
+        BookEntry book = removeSlot(slot);
+        compactIfSparse();
+        return book;
+    }
+
+    /**
+     * Remove the book in the given slot, leaving an empty slot behind.
+     * The posting lists keep the slot until the library is compacted.
+     * @param slot slot of a book that has not been removed yet
+     * @return the removed book entry
+     */
+    private BookEntry removeSlot(int slot) {
+        BookEntry book = books.get(slot);
+        books.remove(slot);
+        bookIndex.remove(book.hashCode(), slot);
+        titleIndex.remove(book.getTitle().hashCode(), slot);
+        titleGroups.remove(book.getTitle());
+        titleSuggestions.remove(book.getTitle());
+        for (String author : book.getAuthors()) {
+            authorSuggestions.remove(author);
+        }
+        removedCount++;
+        changed();
+        return book;
+    }
+
+    /**
+     * Remove all books and compact the library, leaving it empty.
+     * Must be called while holding the write lock.
+     */
+    private void removeAllBooks() {
+        for (int slot = 0; slot < books.size(); slot++) {
+            if (!books.isRemoved(slot)) {
+                removeSlot(slot);
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Note a change of the library, counted in the version when the write lock is released.
+     * Must be called while holding the write lock.
+     */
+    private void changed() {
+        unpublished = true;
+    }
+
+    /**
+     * Count a change of the library in the version, making the book snapshot invalid,
+     * then release the write lock. A whole change is counted once, after it is complete.
+     * @param stamp stamp of the write lock
+     */
+    private void unlockWrite(long stamp) {
+        if (unpublished) {
+            version++;
+            unpublished = false;
+        }
+        lock.unlockWrite(stamp);
+    }
+
+    /**
+     * Run a query over the indexes while holding the read lock.
+     * @param query query over the library
+     * @param <T> type of the result
+     * @return result of the query
+     */
+    private <T> T readLocked(Supplier<T> query) {
+        long stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Compact the library once more than half of its slots are empty. */
+    private void compactIfSparse() {
+        if (removedCount >= MIN_COMPACTION_SIZE && removedCount > books.size() - removedCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Drop all empty slots, moving the remaining books to the front
+     * in library order, and translate the slots kept by the indexes.
+     */
+    private void compact() {
+        int[] newSlots = books.compact();
+        removedCount = 0;
+        bookIndex.remap(newSlots);
+        titleIndex.remap(newSlots);
+        searchIndex.remap(newSlots);
+        remapAll(authorIndex, newSlots);
+    }
+
+    /**
+     * Translate the slots of all posting lists of an index after compaction,
+     * dropping the posting lists that are left without any slot.
+     * @param index index to be translated
+     * @param newSlots new slot for every old slot, or -1 if it was removed
+     */
+    private static void remapAll(List<PostingList> index, int[] newSlots) {
+        for (int i = 0; i < index.size(); i++) {
+            PostingList slots = index.get(i);
+            if (slots != null) {
+                slots.remap(newSlots);
+                if (slots.isEmpty()) {
+                    index.set(i, null);
+                }
+            }
+        }
+    }
+
+    /** List of all books created for a version of the library. */
+    private static class PublishedBooks {
+
+        /** Version of the library the list was created for. */
+        private final long version;
+
+        /** Immutable list of all books in library order. */
+        private final List<BookEntry> books;
+
+        /**
+         * Create a list of all books for a version of the library.
+         * @param version version of the library
+         * @param books immutable list of all books
+         */
+        PublishedBooks(long version, List<BookEntry> books) {
+            this.version = version;
+            this.books = books;
+        }
+    }
+
+    /** Book data file read and parsed ahead of being merged. */
+    private static class ParsedFile {
+
+        /** Entries of the file in file order, null if the file could not be read. */
+        private final List<BookEntry> entries;
+
+        /** Messages printed while reading and parsing the file. */
+        private final String messages;
+
+        /**
+         * Create a parsed file.
+         * @param entries entries of the file, null if the file could not be read
+         * @param messages messages printed while reading and parsing the file
+         */
+        ParsedFile(List<BookEntry> entries, String messages) {
+            this.entries = entries;
+            this.messages = messages;
+        }
+    }
+
+    /** Title search index and book store a boolean query is evaluated on, used while holding the read lock. */
+    private class IndexQuerySource implements TitleQuery.Source {
+
+        @Override
+        public PostingList search(String word) {
+            return searchIndex.search(word);
+        }
+
+        @Override
+        public boolean titleContains(int slot, String phrase) {
+            return !books.isRemoved(slot) && books.getTitle(slot).toLowerCase().contains(phrase);
+        }
+
+        @Override
+        public int slotCount() {
+            return books.size();
+        }
+    }
 }
@@ -0,0 +1,150 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the library phases.
+ *
+ * Every event measures the duration of one phase and carries the number of rows or hits
+ * it dealt with, so a recording shows which command and which phase caused a latency
+ * spike or an allocation burst. Events cost next to nothing unless they are enabled in
+ * the recording settings.
+ */
+public final class LibraryEvents {
+
+    /** Not to be used. */
+    private LibraryEvents() {
+        throw new UnsupportedOperationException("This constructor should never be used.");
+    }
+
+    /** Reading a book data file. */
+    @Name("library.LoadFile")
+    @Label("Load File")
+    @Category({ "Library", "Load" })
+    @Description("Reading a book data file, in any load mode")
+    @StackTrace(false)
+    public static class LoadFile extends Event {
+
+        /** Path of the book data file. */
+        @Label("Path")
+        public String path;
+
+        /** How the file was read: LINES, STREAM or MAPPED. */
+        @Label("Read Mode")
+        public String readMode;
+
+        /** Number of bytes of the file. */
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+
+        /** Number of lines or rows read, including the header line. */
+        @Label("Lines")
+        public long lines;
+
+        /** True if the file was read completely. */
+        @Label("Success")
+        public boolean success;
+    }
+
+    /** Parsing the lines of a loaded book data file into book entries. */
+    @Name("library.ParseFile")
+    @Label("Parse File")
+    @Category({ "Library", "Load" })
+    @Description("Parsing the loaded lines of a book data file into book entries")
+    @StackTrace(false)
+    public static class ParseFile extends Event {
+
+        /** Number of rows parsed. */
+        @Label("Rows")
+        public long rows;
+
+        /** True if the rows were parsed in parallel. */
+        @Label("Parallel")
+        public boolean parallel;
+    }
+
+    /** Merging loaded book entries into the library. */
+    @Name("library.MergeEntries")
+    @Label("Merge Entries")
+    @Category({ "Library", "Load" })
+    @Description("Merging loaded book entries into the library, including waiting for the write lock")
+    @StackTrace(false)
+    public static class MergeEntries extends Event {
+
+        /** Number of entries merged. */
+        @Label("Rows")
+        public long rows;
+
+        /** Number of entries added, the others were duplicates. */
+        @Label("Added")
+        public long added;
+    }
+
+    /** Executing a SEARCH command. */
+    @Name("library.Search")
+    @Label("Search")
+    @Category({ "Library", "Command" })
+    @Description("Executing a SEARCH command")
+    @StackTrace(false)
+    public static class Search extends Event {
+
+        /** Search term. */
+        @Label("Term")
+        public String term;
+
+        /** Number of titles found, -1 if the output was taken from the query cache. */
+        @Label("Hits")
+        public long hits;
+
+        /** True if the output was taken from the query cache. */
+        @Label("Cached")
+        public boolean cached;
+    }
+
+    /** Executing a GROUP command. */
+    @Name("library.Group")
+    @Label("Group")
+    @Category({ "Library", "Command" })
+    @Description("Executing a GROUP command")
+    @StackTrace(false)
+    public static class Group extends Event {
+
+        /** Field the books are grouped by. */
+        @Label("Group By")
+        public String groupBy;
+
+        /** Number of titles printed below the group headers, -1 if the output was taken from the query cache. */
+        @Label("Rows")
+        public long rows;
+
+        /** True if the output was taken from the query cache. */
+        @Label("Cached")
+        public boolean cached;
+    }
+
+    /** Executing a REMOVE command. */
+    @Name("library.Remove")
+    @Label("Remove")
+    @Category({ "Library", "Command" })
+    @Description("Executing a REMOVE command")
+    @StackTrace(false)
+    public static class Remove extends Event {
+
+        /** Field the books are removed by, AUTHOR or TITLE. */
+        @Label("Remove By")
+        public String removeBy;
+
+        /** Author or title removed. */
+        @Label("Argument")
+        public String argument;
+
+        /** Number of books removed. */
+        @Label("Removed")
+        public long removed;
+    }
+}
@@ -1,9 +1,16 @@
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 
 /** 
@@ -12,6 +19,27 @@ import java.util.Objects;
  */
 public class LibraryFileLoader {
 
+    /** Number of characters buffered at a time when streaming a book data file. */
+    public static final int STREAM_CHUNK_SIZE = 1 << 16;
+
+    /** Number of lines parsed by a single task when parsing in parallel. */
+    public static final int PARALLEL_CHUNK_SIZE = 1 << 13;
+
+    /** Delimiter between the fields of a book entry. */
+    private static final char FIELD_DELIMITER = ',';
+
+    /** Delimiter between the authors of a book entry. */
+    private static final char AUTHOR_DELIMITER = '-';
+
+    /** Most digits of a rating that still fit exactly into a float mantissa. */
+    private static final int MAX_FAST_RATING_DIGITS = 7;
+
+    /** Most digits of a page count that cannot overflow an int. */
+    private static final int MAX_FAST_PAGES_DIGITS = 9;
+
+    /** Powers of ten that are exactly representable as float, indexed by exponent. */
+    private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f };
+
     /**
      * Contains all lines read from a book data file using
      * the loadFileContent method.
@@ -24,9 +52,40 @@ public class LibraryFileLoader {
      */
     private List<String> fileContent;
 
+    /**
+     * Dictionary the author names of sequentially parsed entries are looked up in,
+     * so every distinct name is only kept once.
+     */
+    private final AuthorDictionary authorDictionary;
+
+    /** Output context errors are printed to. */
+    private final CommandOutput output;
+
 
-    /** Create a new loader. No file content has been loaded yet. */
+    /** Create a new loader with its own author dictionary. No file content has been loaded yet. */
     public LibraryFileLoader() { 
+        this(new AuthorDictionary());
+    }
+
+    /**
+     * Create a new loader sharing the given author dictionary. No file content has been loaded yet.
+     * @param authorDictionary dictionary providing the canonical author names
+     * @throws NullPointerException if the given dictionary is null
+     */
+    public LibraryFileLoader(AuthorDictionary authorDictionary) {
+        this(authorDictionary, CommandOutput.standard());
+    }
+
+    /**
+     * Create a new loader sharing the given author dictionary and printing errors to the given
+     * output context. No file content has been loaded yet.
+     * @param authorDictionary dictionary providing the canonical author names
+     * @param output output context errors are printed to
+     * @throws NullPointerException if the given dictionary or output is null
+     */
+    public LibraryFileLoader(AuthorDictionary authorDictionary, CommandOutput output) {
+        this.authorDictionary = Objects.requireNonNull(authorDictionary, "Given dictionary must not be null.");
+        this.output = Objects.requireNonNull(output, "Given output must not be null.");
         fileContent = null;
     }
 
@@ -44,17 +103,119 @@ public class LibraryFileLoader {
     public boolean loadFileContent(Path fileName) {
         Objects.requireNonNull(fileName, "Given filename must not be null.");
         boolean success = false;
+        LibraryEvents.LoadFile event = new LibraryEvents.LoadFile();
+        event.begin();
 
         try {
             fileContent = Files.readAllLines(fileName);
             success = true;
+            if (LibraryMetrics.ENABLED) {
+                recordFileSize(fileName);
+            }
+        } catch (IOException | SecurityException e) {
+            output.err().println("ERROR: Reading file content failed: " + e);
+        }
+
+        commitLoadEvent(event, fileName, "LINES", success ? fileContent.size() : 0, success);
+        return success;
+    }
+
+    /**
+     * Read the specified book data file in buffered chunks and pass each
+     * parsed book entry straight to the given consumer.
+     *
+     * Unlike loadFileContent, no file content is kept in this loader, so
+     * memory use depends on the chunk size rather than the file size.
+     * Entries parsed before a read error occurred have already been passed on.
+     *
+     * @param fileName file path with book data
+     * @param consumer receives every parsed book entry in file order
+     * @return true if the whole file could be read successfully, false otherwise
+     * @throws NullPointerException if the given file name or consumer is null
+     */
+    public boolean streamFileContent(Path fileName, Consumer<BookEntry> consumer) {
+        Objects.requireNonNull(fileName, "Given filename must not be null.");
+        Objects.requireNonNull(consumer, "Given consumer must not be null.");
+        boolean success = false;
+        long lines = 0;
+        LibraryEvents.LoadFile event = new LibraryEvents.LoadFile();
+        event.begin();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(fileName), StandardCharsets.UTF_8), STREAM_CHUNK_SIZE)) {
+            // the first line only holds the column headers
+            if (reader.readLine() != null) {
+                lines++;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                consumer.accept(parseRow(line, authorDictionary));
+                lines++;
+            }
+            success = true;
+            if (LibraryMetrics.ENABLED) {
+                recordFileSize(fileName);
+            }
         } catch (IOException | SecurityException e) {
-            System.err.println("ERROR: Reading file content failed: " + e);
+            output.err().println("ERROR: Reading file content failed: " + e);
         }
 
+        commitLoadEvent(event, fileName, "STREAM", lines, success);
         return success;
     }
 
+    /**
+     * Memory-map the specified book data file instead of reading it into this loader.
+     * @param fileName file path with book data
+     * @return mapped book data file or null if the file could not be mapped
+     * @throws NullPointerException if the given file name is null
+     */
+    public MappedBookFile mapFileContent(Path fileName) {
+        Objects.requireNonNull(fileName, "Given filename must not be null.");
+        LibraryEvents.LoadFile event = new LibraryEvents.LoadFile();
+        event.begin();
+
+        try {
+            MappedBookFile mapped = MappedBookFile.open(fileName);
+            if (LibraryMetrics.ENABLED) {
+                recordFileSize(fileName);
+            }
+            // the header line is not counted as a row
+            commitLoadEvent(event, fileName, "MAPPED", mapped.rowCount() + 1, true);
+            return mapped;
+        } catch (IOException | SecurityException e) {
+            output.err().println("ERROR: Reading file content failed: " + e);
+            commitLoadEvent(event, fileName, "MAPPED", 0, false);
+            return null;
+        }
+    }
+
+    /**
+     * Commit a load event, if it is enabled and took long enough to be recorded.
+     * @param event event started when loading began
+     * @param fileName path of the book data file
+     * @param readMode how the file was read
+     * @param lines number of lines read, including the header line
+     * @param success true if the file was read completely
+     */
+    private static void commitLoadEvent(LibraryEvents.LoadFile event, Path fileName, String readMode,
+            long lines, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = fileName.toString();
+            event.readMode = readMode;
+            event.lines = lines;
+            event.success = success;
+            try {
+                event.bytes = Files.size(fileName);
+            } catch (IOException | SecurityException e) {
+                event.bytes = -1;
+            }
+            event.commit();
+        }
+    }
+
     /**
      * Has file content been loaded already?
      * @return true if file content has been loaded already.
@@ -73,34 +234,310 @@ public class LibraryFileLoader {
         List<BookEntry> bookEntries = new ArrayList<>();
 
         if (contentLoaded()) {
+            LibraryEvents.ParseFile event = new LibraryEvents.ParseFile();
+            event.begin();
             for (int i = 1; i < fileContent.size(); i++){
-                bookEntries.add(splitContents(fileContent.get(i)));
+                bookEntries.add(parseRow(fileContent.get(i), authorDictionary));
             }
+            event.rows = bookEntries.size();
+            event.parallel = false;
+            event.commit();
 
         } else{
-            System.err.println("ERROR: No content loaded before parsing.");
+            output.err().println("ERROR: No content loaded before parsing.");
             return bookEntries;
 
         }
         return bookEntries;
     }
 
+    /**
+     * Parse file content loaded previously with the loadFileContent method,
+     * splitting the lines into chunks that are parsed in parallel.
+     *
+     * Every chunk writes its entries to their own positions of the result,
+     * so the returned list has the same order as the one of parseFileContent.
+     * The dictionary is not used, as every lookup adding a name takes its lock
+     * and the chunks would wait for each other. The author names of the returned
+     * entries are therefore not canonical; the library replaces them when merging.
+     *
+     * @return books parsed from the previously loaded book data or an empty list
+     * if no book data has been loaded yet.
+     */
+    public List<BookEntry> parseFileContentParallel() {
+        if (!contentLoaded()) {
+            output.err().println("ERROR: No content loaded before parsing.");
+            return new ArrayList<>();
+        }
+
+        // the first line only holds the column headers
+        LibraryEvents.ParseFile event = new LibraryEvents.ParseFile();
+        event.begin();
+        BookEntry[] bookEntries = new BookEntry[Math.max(fileContent.size() - 1, 0)];
+        ForkJoinPool.commonPool().invoke(new ParseTask(fileContent, bookEntries, 0, bookEntries.length));
+        event.rows = bookEntries.length;
+        event.parallel = true;
+        event.commit();
+
+        return Arrays.asList(bookEntries);
+    }
+
+    /**
+     * Task parsing a range of lines, split further while the range
+     * is larger than PARALLEL_CHUNK_SIZE.
+     */
+    private static class ParseTask extends RecursiveAction {
+
+        /** Version of the serialized form, tasks are never serialized. */
+        private static final long serialVersionUID = 1L;
+
+        /** All lines of the file including the header line. */
+        private final List<String> lines;
+
+        /** Parsed entries, the entry of line i + 1 is stored at index i. */
+        private final BookEntry[] bookEntries;
+
+        /** First entry index parsed by this task. */
+        private final int from;
+
+        /** Entry index after the last one parsed by this task. */
+        private final int to;
+
+        /**
+         * Create a task parsing the given range of entries.
+         * @param lines all lines of the file including the header line
+         * @param bookEntries array the parsed entries are written to
+         * @param from first entry index to parse
+         * @param to entry index after the last one to parse
+         */
+        ParseTask(List<String> lines, BookEntry[] bookEntries, int from, int to) {
+            this.lines = lines;
+            this.bookEntries = bookEntries;
+            this.from = from;
+            this.to = to;
+        }
+
+        /** Parse the range directly or split it into two halves. */
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    bookEntries[i] = parseRow(lines.get(i + 1), null);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(lines, bookEntries, from, middle),
+                        new ParseTask(lines, bookEntries, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Parse a row of a book data file, counting parsed and rejected rows if metrics are enabled.
+     * @param line a line from the csv file, either a String or a view of the mapped file
+     * @param authorDictionary dictionary providing the canonical author names, or null to create new ones
+     * @return parsed book entry
+     * @throws IllegalArgumentException if the line is not a valid book entry
+     */
+    static BookEntry parseRow(CharSequence line, AuthorDictionary authorDictionary) {
+        if (!LibraryMetrics.ENABLED) {
+            return splitContents(line, authorDictionary);
+        }
+
+        try {
+            BookEntry entry = splitContents(line, authorDictionary);
+            LibraryMetrics.recordRowParsed();
+            return entry;
+        } catch (IllegalArgumentException e) {
+            LibraryMetrics.recordRowRejected();
+            throw e;
+        }
+    }
+
+    /**
+     * Record the size of a loaded book data file in the metrics.
+     * @param fileName path of the book data file
+     */
+    private static void recordFileSize(Path fileName) {
+        try {
+            LibraryMetrics.recordBytesLoaded(Files.size(fileName));
+        } catch (IOException | SecurityException e) {
+            // the file has been read already, only its size is missing from the metrics
+        }
+    }
+
     /**
      * Splits the contents of an entry from a csv file into title, author, rating, ISBN and pages.
+     *
+     * The entry is scanned once with a cursor instead of using String.split, so apart from
+     * the author array only the final field Strings are allocated. Rating and pages are
+     * parsed straight from the characters of their fields.
+     *
      * @param entry a line from the csv file read in during the Add cmd
      * @return BookEntry: All data for a book fully split up into title, author, rating, ISBN and pages.
+     * @throws IllegalArgumentException if the entry is missing fields or holds invalid numbers.
      */
     public static BookEntry splitContents(String entry) {
+        return splitContents(entry, null);
+    }
+
+    /**
+     * Splits the contents of an entry from a csv file, taking the author names from a dictionary.
+     * Names already in the dictionary are reused without creating a substring.
+     * The entry can be any sequence of characters, so rows of a mapped file are
+     * parsed without first being decoded into a String.
+     *
+     * @param entry a line from the csv file read in during the Add cmd
+     * @param authorDictionary dictionary providing the canonical author names, or null to create new ones
+     * @return BookEntry: All data for a book fully split up into title, author, rating, ISBN and pages.
+     * @throws IllegalArgumentException if the entry is missing fields or holds invalid numbers.
+     */
+    public static BookEntry splitContents(CharSequence entry, AuthorDictionary authorDictionary) {
         Objects.requireNonNull(entry, "Must not be null");
 
-        String[] entryArray = entry.split(",");
-        String title = entryArray[0];
-        String[] authors = entryArray[1].split("-");
-        float rating = Float.parseFloat(entryArray[2]);
-        String ISBN = entryArray[3];
-        int pages = Integer.parseInt(entryArray[4]);
+        int end = entry.length();
+        int titleEnd = nextField(entry, 0, end);
+        int authorsEnd = nextField(entry, titleEnd + 1, end);
+        int ratingEnd = nextField(entry, authorsEnd + 1, end);
+        int isbnEnd = nextField(entry, ratingEnd + 1, end);
+        int pagesEnd = nextField(entry, isbnEnd + 1, end);
+
+        String title = entry.subSequence(0, titleEnd).toString();
+        String[] authors = splitAuthors(entry, titleEnd + 1, authorsEnd, authorDictionary);
+        float rating = parseRating(entry, authorsEnd + 1, ratingEnd);
+        String ISBN = entry.subSequence(ratingEnd + 1, isbnEnd).toString();
+        int pages = parsePages(entry, isbnEnd + 1, pagesEnd);
 
         return new BookEntry(title, authors, rating, ISBN, pages);
     }
 
+    /**
+     * Find the end of the field starting at the given position.
+     * @param entry line from the csv file
+     * @param start first character of the field
+     * @param end end of the line
+     * @return index of the delimiter after the field, or end for the last field
+     * @throws IllegalArgumentException if the line has no field at the given position
+     */
+    private static int nextField(CharSequence entry, int start, int end) {
+        if (start > end) {
+            throw new IllegalArgumentException("Missing field in book entry: " + entry);
+        }
+
+        if (entry instanceof String) {
+            int delimiter = ((String) entry).indexOf(FIELD_DELIMITER, start);
+            return delimiter == -1 ? end : delimiter;
+        }
+
+        int delimiter = start;
+        while (delimiter < end && entry.charAt(delimiter) != FIELD_DELIMITER) {
+            delimiter++;
+        }
+        return delimiter;
+    }
+
+    /**
+     * Split the authors field into single author names.
+     * Trailing empty names are dropped, just as String.split would do.
+     * @param entry line from the csv file
+     * @param start first character of the authors field
+     * @param end end of the authors field
+     * @param authorDictionary dictionary providing the canonical author names, or null to create new ones
+     * @return all author names of the field
+     */
+    private static String[] splitAuthors(CharSequence entry, int start, int end, AuthorDictionary authorDictionary) {
+        if (start == end) {
+            return new String[] { authorDictionary == null ? "" : authorDictionary.nameOf(authorDictionary.idOf("")) };
+        }
+
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (entry.charAt(i) == AUTHOR_DELIMITER) {
+                count++;
+            }
+        }
+
+        String[] authors = new String[count];
+        int author = 0;
+        int nameStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || entry.charAt(i) == AUTHOR_DELIMITER) {
+                authors[author++] = authorDictionary == null ? entry.subSequence(nameStart, i).toString()
+                        : authorDictionary.nameOf(authorDictionary.idOf(entry, nameStart, i));
+                nameStart = i + 1;
+            }
+        }
+
+        int size = count;
+        while (size > 0 && authors[size - 1].isEmpty()) {
+            size--;
+        }
+        return size == count ? authors : Arrays.copyOf(authors, size);
+    }
+
+    /**
+     * Parse the rating field without creating a substring.
+     *
+     * Plain decimals with up to seven digits are computed as one float division of two
+     * exactly representable values, which gives the same result as Float.parseFloat.
+     * Anything else (signs, exponents, long fractions) is left to Float.parseFloat.
+     *
+     * @param entry line from the csv file
+     * @param start first character of the rating field
+     * @param end end of the rating field
+     * @return parsed rating
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    private static float parseRating(CharSequence entry, int start, int end) {
+        int mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean decimalPoint = false;
+
+        for (int i = start; i < end; i++) {
+            char c = entry.charAt(i);
+            if (c >= '0' && c <= '9' && digits < MAX_FAST_RATING_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (decimalPoint) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !decimalPoint) {
+                decimalPoint = true;
+            } else {
+                return Float.parseFloat(entry.subSequence(start, end).toString());
+            }
+        }
+
+        if (digits == 0) {
+            return Float.parseFloat(entry.subSequence(start, end).toString());
+        }
+        return (float) mantissa / FLOAT_POWERS_OF_TEN[fractionDigits];
+    }
+
+    /**
+     * Parse the pages field without creating a substring.
+     * Anything but a plain number of up to nine digits is left to Integer.parseInt.
+     * @param entry line from the csv file
+     * @param start first character of the pages field
+     * @param end end of the pages field
+     * @return parsed number of pages
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    private static int parsePages(CharSequence entry, int start, int end) {
+        if (start == end || end - start > MAX_FAST_PAGES_DIGITS) {
+            return Integer.parseInt(entry.subSequence(start, end).toString());
+        }
+
+        int pages = 0;
+        for (int i = start; i < end; i++) {
+            char c = entry.charAt(i);
+            if (c < '0' || c > '9') {
+                return Integer.parseInt(entry.subSequence(start, end).toString());
+            }
+            pages = pages * 10 + (c - '0');
+        }
+        return pages;
+    }
+
 }
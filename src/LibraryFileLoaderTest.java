@@ -0,0 +1,133 @@
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the cursor based row parser of LibraryFileLoader, which has to split rows
+ * exactly like the String.split based parser it replaced.
+ */
+public class LibraryFileLoaderTest {
+
+    /** Rows split the same way by both parsers. */
+    private static final String[] ROWS = {
+            "Harry Potter,J.K. Rowling-Mary GrandPr\u00e9,4.57,0439785960,652",
+            "Title,Author,0,isbn,0",
+            ",Author,1.5,isbn,10",
+            "Title,,3.25,isbn,10",
+            "Title,A--B,3.25,isbn,10",
+            "Title,-A,3.25,isbn,10",
+            "Title,A-B-,3.25,isbn,10",
+            "Title,A-B--,3.25,isbn,10",
+            "Title,-,3.25,isbn,10",
+            "Title,--,3.25,isbn,10",
+            "Title,Author,5,,10",
+            "Title,Author,4.5,isbn,10,",
+            "Title,Author,4.5,isbn,10,extra,fields",
+            "Title,Author,.5,isbn,10",
+            "Title,Author,3.,isbn,10",
+            "Title,Author,0.123456789,isbn,10",
+            "Title,Author,4.25e0,isbn,0012",
+            "Title,Author,+4.25,isbn,+12",
+            "Title,Author,4.25,isbn,1234567890",
+            " Title with spaces , Author with spaces ,4.25,isbn,10",
+    };
+
+    /** Rows both parsers reject. */
+    private static final String[] INVALID_ROWS = {
+            "Title,Author,4.25,isbn",
+            "Title,Author,4.25",
+            "Title",
+            "",
+            "Title,Author,rating,isbn,10",
+            "Title,Author,4.25,isbn,pages",
+            "Title,Author,4.25,isbn,",
+            "Title,Author,,isbn,10",
+            "Title,Author,4.25,isbn,12345678901",
+            "Title,Author,4.2.5,isbn,10",
+    };
+
+    /**
+     * Split a row just as splitContents did before it was replaced by the cursor based parser.
+     * @param entry row of a book data file
+     * @return parsed book entry
+     */
+    private static BookEntry splitReference(String entry) {
+        String[] entryArray = entry.split(",");
+        String title = entryArray[0];
+        String[] authors = entryArray[1].split("-");
+        float rating = Float.parseFloat(entryArray[2]);
+        String ISBN = entryArray[3];
+        int pages = Integer.parseInt(entryArray[4]);
+
+        return new BookEntry(title, authors, rating, ISBN, pages);
+    }
+
+    private static void assertSameEntry(String row, BookEntry expected, BookEntry actual) {
+        assertEquals("Title of: " + row, expected.getTitle(), actual.getTitle());
+        assertArrayEquals("Authors of: " + row, expected.getAuthors(), actual.getAuthors());
+        assertEquals("Rating of: " + row, Float.floatToIntBits(expected.getRating()),
+                Float.floatToIntBits(actual.getRating()));
+        assertEquals("ISBN of: " + row, expected.getISBN(), actual.getISBN());
+        assertEquals("Pages of: " + row, expected.getPages(), actual.getPages());
+    }
+
+    @Test
+    public void testRowsSplitLikeStringSplit() {
+        for (String row : ROWS) {
+            assertSameEntry(row, splitReference(row), LibraryFileLoader.splitContents(row));
+        }
+    }
+
+    @Test
+    public void testCharSequenceRowsSplitLikeStringSplit() {
+        // a StringBuilder takes the character by character path used for mapped files
+        for (String row : ROWS) {
+            assertSameEntry(row, splitReference(row),
+                    LibraryFileLoader.splitContents(new StringBuilder(row), new AuthorDictionary()));
+        }
+    }
+
+    @Test
+    public void testInvalidRowsRejected() {
+        for (String row : INVALID_ROWS) {
+            try {
+                splitReference(row);
+                fail("Reference parser accepted: " + row);
+            } catch (RuntimeException e) {
+                // expected, rejected rows are only compared by whether they are rejected
+            }
+            assertThrows(row, IllegalArgumentException.class, () -> LibraryFileLoader.splitContents(row));
+            assertThrows(row, IllegalArgumentException.class,
+                    () -> LibraryFileLoader.splitContents(new StringBuilder(row), new AuthorDictionary()));
+        }
+    }
+
+    @Test
+    public void testRatingsParsedLikeParseFloat() {
+        for (int hundredths = 0; hundredths <= 500; hundredths++) {
+            for (String rating : new String[] {
+                    hundredths / 100 + "." + String.format("%02d", hundredths % 100),
+                    hundredths / 100 + "." + String.format("%02d", hundredths % 100) + "0",
+                    hundredths / 100 + "." + hundredths / 10 % 10,
+            }) {
+                String row = "Title,Author," + rating + ",isbn,10";
+                assertEquals(row, Float.floatToIntBits(Float.parseFloat(rating)),
+                        Float.floatToIntBits(LibraryFileLoader.splitContents(row).getRating()));
+            }
+        }
+    }
+
+    @Test
+    public void testDictionaryAuthorsCanonical() {
+        AuthorDictionary dictionary = new AuthorDictionary();
+        BookEntry first = LibraryFileLoader.splitContents("First,Ann-Bob,4.5,isbn,10", dictionary);
+        BookEntry second = LibraryFileLoader.splitContents(new StringBuilder("Second,Bob-Ann,4.5,isbn,10"), dictionary);
+
+        assertEquals(Arrays.asList("Ann", "Bob"), Arrays.asList(first.getAuthors()));
+        assertSame(first.getAuthors()[0], second.getAuthors()[1]);
+        assertSame(first.getAuthors()[1], second.getAuthors()[0]);
+        assertEquals(2, dictionary.size());
+    }
+}
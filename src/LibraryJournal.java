@@ -0,0 +1,629 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of all changes made to a library, kept in a directory together
+ * with the last snapshot of the library.
+ *
+ * Files belong to generations. The library state of generation g is snapshot-g.lib
+ * (the books loaded before the journal was first opened, if it does not exist yet)
+ * followed by the changes in journal-g.log and all later journals. Once a journal grows past the compaction threshold, a new generation
+ * is started and the library state at that point is written to its snapshot in the
+ * background; the files of older generations are deleted once that snapshot is complete.
+ *
+ * Every record holds its payload length, its type, the payload and a CRC32 checksum.
+ * Records are buffered and made durable by commit, which syncs everything appended so
+ * far, so the records of concurrent committers share a single fsync.
+ */
+public class LibraryJournal implements Closeable {
+
+    /** Journal compaction threshold in bytes used if none is given. */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1L << 26;
+
+    /** Record type of an added book entry. */
+    private static final byte RECORD_ADD = 1;
+
+    /** Record type of the removal of all books of an author. */
+    private static final byte RECORD_REMOVE_AUTHOR = 2;
+
+    /** Record type of the removal of the first book with a title. */
+    private static final byte RECORD_REMOVE_TITLE = 3;
+
+    /** Bytes of a record besides its payload: length, type and checksum. */
+    private static final int RECORD_OVERHEAD = Integer.BYTES + 1 + Integer.BYTES;
+
+    /** Number of buffered bytes after which the buffer is written out before the next commit. */
+    private static final int WRITE_THRESHOLD = 1 << 20;
+
+    /** Buffer size used for replaying journals. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Prefix of snapshot file names. */
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    /** Suffix of snapshot file names. */
+    private static final String SNAPSHOT_SUFFIX = ".lib";
+
+    /** Prefix of journal file names. */
+    private static final String JOURNAL_PREFIX = "journal-";
+
+    /** Suffix of journal file names. */
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    /** Suffix of snapshot files still being written. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Directory holding the snapshots and journals. */
+    private final Path directory;
+
+    /** Journal size in bytes after which a new generation is started. */
+    private final long compactionThreshold;
+
+    /** Background thread writing snapshots. */
+    private final ExecutorService compactor;
+
+    /** Guards all writes to the journal file, held while syncing so commits queue up. */
+    private final Object channelLock;
+
+    /** Records appended but not written to the journal file yet. */
+    private final ByteArrayOutputStream pending;
+
+    /** Stream writing to the pending records. */
+    private final DataOutputStream pendingOut;
+
+    /** Buffer a single record payload is encoded in. */
+    private final ByteArrayOutputStream payload;
+
+    /** Stream writing to the payload buffer. */
+    private final DataOutputStream payloadOut;
+
+    /** Checksum of a single record. */
+    private final CRC32 checksum;
+
+    /** Current generation. */
+    private int generation;
+
+    /** Journal file of the current generation. */
+    private FileChannel channel;
+
+    /** Number of bytes appended to the journal of the current generation. */
+    private long appended;
+
+    /** Number of bytes of the journal of the current generation known to be on disk. */
+    private volatile long synced;
+
+    /** True while a snapshot is written in the background. */
+    private volatile boolean compacting;
+
+    /** Error of a write done outside of commit, reported by the next commit. */
+    private IOException writeFailure;
+
+    /**
+     * Create a journal appending to the given generation.
+     * @param directory directory holding the snapshots and journals
+     * @param compactionThreshold journal size in bytes after which a new generation is started
+     * @param generation current generation
+     * @param channel journal file of the current generation, positioned at its end
+     */
+    private LibraryJournal(Path directory, long compactionThreshold, int generation, FileChannel channel)
+            throws IOException {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        this.generation = generation;
+        this.channel = channel;
+        appended = channel.size();
+        synced = appended;
+        compacting = false;
+        writeFailure = null;
+        channelLock = new Object();
+        pending = new ByteArrayOutputStream();
+        pendingOut = new DataOutputStream(pending);
+        payload = new ByteArrayOutputStream();
+        payloadOut = new DataOutputStream(payload);
+        checksum = new CRC32();
+        compactor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "library-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open the journal in the given directory, restoring the library state it holds.
+     *
+     * The last complete snapshot is added to the library and all later journals are
+     * replayed on top of it. A damaged record at the end of the last journal, left by
+     * an interrupted write, is discarded together with everything after it. A damaged
+     * or missing journal before the last one cannot be left by an interrupted write, as
+     * every journal is synced before the next one is started, so it fails the open rather
+     * than restoring a state with a gap in it.
+     *
+     * @param directory directory holding the snapshots and journals, created if missing
+     * @param data library the state is restored into, not journaling yet; it must be empty
+     *             if the directory holds a snapshot, see hasSnapshot
+     * @param compactionThreshold journal size in bytes after which a new generation is started
+     * @return the opened journal, ready for appending
+     * @throws IOException if the directory could not be read, a snapshot is damaged or
+     *                     a journal before the last one is damaged or missing
+     * @throws NullPointerException if one of the given parameters is null
+     * @throws IllegalArgumentException if the compaction threshold is not positive
+     */
+    public static LibraryJournal open(Path directory, LibraryData data, long compactionThreshold)
+            throws IOException {
+        Objects.requireNonNull(directory, "Given directory must not be null.");
+        Objects.requireNonNull(data, "Given data must not be null.");
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Compaction threshold must be positive: " + compactionThreshold);
+        }
+
+        Files.createDirectories(directory);
+        TreeMap<Integer, Path> snapshots = new TreeMap<>();
+        TreeMap<Integer, Path> journals = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // left behind by a compaction that did not finish
+                    Files.deleteIfExists(file);
+                } else if (generationOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) != -1) {
+                    snapshots.put(generationOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX), file);
+                } else if (generationOf(name, JOURNAL_PREFIX, JOURNAL_SUFFIX) != -1) {
+                    journals.put(generationOf(name, JOURNAL_PREFIX, JOURNAL_SUFFIX), file);
+                }
+            }
+        }
+
+        int base = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+        if (!snapshots.isEmpty()) {
+            LibrarySnapshot.read(snapshots.lastEntry().getValue(), data.authorDictionary(), data::replayAdd);
+        }
+
+        int generation = base;
+        long validLength = 0;
+        int expected = base;
+        Path damaged = null;
+        for (Map.Entry<Integer, Path> journal : journals.tailMap(base, true).entrySet()) {
+            if (damaged != null) {
+                throw new IOException("Damaged journal followed by later generations: " + damaged);
+            }
+            if (journal.getKey() != expected) {
+                throw new IOException("Missing journal of generation: " + expected);
+            }
+            expected++;
+            generation = journal.getKey();
+            validLength = replay(journal.getValue(), data);
+            if (validLength < Files.size(journal.getValue())) {
+                damaged = journal.getValue();
+            }
+        }
+
+        FileChannel channel = FileChannel.open(journalFile(directory, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            System.err.println("ERROR: Discarding damaged journal tail of file: " + journalFile(directory, generation));
+            channel.truncate(validLength);
+            channel.force(false);
+        }
+        channel.position(validLength);
+
+        LibraryJournal opened = new LibraryJournal(directory, compactionThreshold, generation, channel);
+        opened.deleteGenerationsBefore(base);
+        return opened;
+    }
+
+    /**
+     * Checks whether a journal directory holds a snapshot, which then holds the complete
+     * library state of its generation, including any books loaded before the journal was
+     * first opened.
+     * @param directory directory holding the snapshots and journals
+     * @return true if the directory holds a snapshot, false if it does not or does not exist
+     * @throws IOException if the directory could not be read
+     * @throws NullPointerException if the given directory is null
+     */
+    public static boolean hasSnapshot(Path directory) throws IOException {
+        Objects.requireNonNull(directory, "Given directory must not be null.");
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (generationOf(file.getFileName().toString(), SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) != -1) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Append the addition of a book entry.
+     * @param entry added book entry
+     */
+    public void recordAdd(BookEntry entry) {
+        synchronized (this) {
+            try {
+                LibrarySnapshot.writeString(payloadOut, entry.getTitle());
+                LibrarySnapshot.writeString(payloadOut, entry.getISBN());
+                payloadOut.writeFloat(entry.getRating());
+                payloadOut.writeInt(entry.getPages());
+                payloadOut.writeInt(entry.getAuthors().length);
+                for (String author : entry.getAuthors()) {
+                    LibrarySnapshot.writeString(payloadOut, author);
+                }
+            } catch (IOException e) {
+                // writing to a byte array cannot fail
+                throw new IllegalStateException(e);
+            }
+            appendRecord(RECORD_ADD);
+        }
+        writeIfFull();
+    }
+
+    /**
+     * Append the removal of all books of an author.
+     * @param author name of the author
+     */
+    public void recordRemoveAuthor(String author) {
+        recordRemove(RECORD_REMOVE_AUTHOR, author);
+    }
+
+    /**
+     * Append the removal of the first book with a title.
+     * @param title title of the removed book
+     */
+    public void recordRemoveTitle(String title) {
+        recordRemove(RECORD_REMOVE_TITLE, title);
+    }
+
+    /**
+     * Make all records appended so far durable.
+     *
+     * Callers queue up while a sync is running; the next one syncs the records of all
+     * of them at once, and the others find their records already synced.
+     *
+     * @throws IOException if writing or syncing the journal failed
+     */
+    public void commit() throws IOException {
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+
+        synchronized (channelLock) {
+            if (synced < target) {
+                writePending(true);
+            }
+        }
+    }
+
+    /**
+     * @return true if the journal has grown past the compaction threshold and no compaction is running
+     */
+    public boolean needsCompaction() {
+        synchronized (this) {
+            return !compacting && appended >= compactionThreshold;
+        }
+    }
+
+    /**
+     * Start a new generation and write the given library state as its snapshot in the background.
+     * @param books all book entries of the library at this point, not changed afterwards
+     * @throws IOException if the journal could not be synced or the new journal not be created
+     * @throws NullPointerException if the given books are null
+     */
+    public void compact(List<BookEntry> books) throws IOException {
+        Objects.requireNonNull(books, "Given books must not be null.");
+
+        synchronized (channelLock) {
+            writePending(true);
+            synchronized (this) {
+                FileChannel next = FileChannel.open(journalFile(directory, generation + 1),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                channel.close();
+                channel = next;
+                generation++;
+                appended = 0;
+                synced = 0;
+                compacting = true;
+            }
+        }
+
+        int snapshotGeneration = generation;
+        compactor.execute(() -> writeSnapshot(books, snapshotGeneration));
+    }
+
+    /**
+     * Commit all records, wait for a running compaction and close the journal file.
+     * @throws IOException if the last records could not be made durable
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+        } finally {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (channelLock) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Append a removal record.
+     * @param type record type
+     * @param key author name or title of the removal
+     */
+    private void recordRemove(byte type, String key) {
+        synchronized (this) {
+            try {
+                LibrarySnapshot.writeString(payloadOut, key);
+            } catch (IOException e) {
+                // writing to a byte array cannot fail
+                throw new IllegalStateException(e);
+            }
+            appendRecord(type);
+        }
+        writeIfFull();
+    }
+
+    /**
+     * Frame the encoded payload as a record and add it to the pending records.
+     * Must be called while holding the lock of this journal.
+     * @param type record type
+     */
+    private void appendRecord(byte type) {
+        checksum.reset();
+        checksum.update(type);
+        byte[] bytes = payload.toByteArray();
+        checksum.update(bytes);
+
+        try {
+            pendingOut.writeInt(bytes.length);
+            pendingOut.writeByte(type);
+            pendingOut.write(bytes);
+            pendingOut.writeInt((int) checksum.getValue());
+        } catch (IOException e) {
+            // writing to a byte array cannot fail
+            throw new IllegalStateException(e);
+        }
+
+        payload.reset();
+        appended += RECORD_OVERHEAD + bytes.length;
+    }
+
+    /** Write the pending records without syncing once they have grown large. */
+    private void writeIfFull() {
+        synchronized (this) {
+            if (pending.size() < WRITE_THRESHOLD) {
+                return;
+            }
+        }
+
+        synchronized (channelLock) {
+            try {
+                writePending(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    writeFailure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write all pending records to the journal file.
+     * Must be called while holding the channel lock.
+     * @param force true if the journal file has to be synced afterwards
+     * @throws IOException if writing or syncing failed, or an earlier write failed
+     */
+    private void writePending(boolean force) throws IOException {
+        byte[] batch;
+        long end;
+        synchronized (this) {
+            if (writeFailure != null) {
+                throw writeFailure;
+            }
+            batch = pending.toByteArray();
+            pending.reset();
+            end = appended;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (force) {
+                channel.force(false);
+                synced = end;
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                writeFailure = e;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Write the snapshot of a new generation and delete the files of older ones.
+     * Runs on the compactor thread.
+     * @param books all book entries of the library when the generation was started
+     * @param snapshotGeneration the new generation
+     */
+    private void writeSnapshot(List<BookEntry> books, int snapshotGeneration) {
+        Path target = directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX);
+        try {
+            // the snapshot is synced and renamed into place by write, see LibrarySnapshot
+            LibrarySnapshot.write(books, target);
+            syncDirectory();
+            deleteGenerationsBefore(snapshotGeneration);
+        } catch (IOException e) {
+            System.err.println("ERROR: Compacting journal failed: " + e);
+        } finally {
+            compacting = false;
+        }
+    }
+
+    /**
+     * Delete all snapshots and journals of generations before the given one.
+     * @param generation oldest generation to be kept
+     * @throws IOException if the directory could not be read
+     */
+    private void deleteGenerationsBefore(int generation) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int snapshotGeneration = generationOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                int journalGeneration = generationOf(name, JOURNAL_PREFIX, JOURNAL_SUFFIX);
+                if ((snapshotGeneration != -1 && snapshotGeneration < generation)
+                        || (journalGeneration != -1 && journalGeneration < generation)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /** Sync the directory so a renamed snapshot survives a crash, where the platform allows it. */
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // not every platform can open a directory, the rename is still atomic there
+        }
+    }
+
+    /**
+     * Replay all valid records of a journal file.
+     * @param journal journal file
+     * @param data library the records are applied to
+     * @return length of the valid part of the journal file
+     * @throws IOException if the journal file could not be read
+     */
+    private static long replay(Path journal, LibraryData data) throws IOException {
+        long valid = 0;
+        long size = Files.size(journal);
+        CRC32 checksum = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(journal), BUFFER_SIZE))) {
+            while (valid + RECORD_OVERHEAD <= size) {
+                int length = in.readInt();
+                if (length < 0 || valid + RECORD_OVERHEAD + length > size) {
+                    break;
+                }
+                byte type = in.readByte();
+                byte[] bytes = length <= buffer.length ? buffer : new byte[length];
+                in.readFully(bytes, 0, length);
+                int expected = in.readInt();
+
+                checksum.reset();
+                checksum.update(type);
+                checksum.update(bytes, 0, length);
+                if ((int) checksum.getValue() != expected || !apply(type, bytes, length, data)) {
+                    break;
+                }
+                valid += RECORD_OVERHEAD + length;
+            }
+        } catch (EOFException e) {
+            // the file ends inside a record, everything before it is valid
+        }
+
+        return valid;
+    }
+
+    /**
+     * Apply a single record to a library.
+     * @param type record type
+     * @param bytes array holding the payload
+     * @param length length of the payload
+     * @param data library the record is applied to
+     * @return true if the record was applied, false if it is not a valid record
+     */
+    private static boolean apply(byte type, byte[] bytes, int length, LibraryData data) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
+        byte[] buffer = new byte[Math.max(length, 1)];
+        try {
+            if (type == RECORD_ADD) {
+                String title = LibrarySnapshot.readString(in, buffer);
+                String isbn = LibrarySnapshot.readString(in, buffer);
+                float rating = in.readFloat();
+                int pages = in.readInt();
+                int authorCount = in.readInt();
+                if (authorCount < 0 || authorCount > length) {
+                    return false;
+                }
+                String[] authors = new String[authorCount];
+                for (int i = 0; i < authorCount; i++) {
+                    authors[i] = LibrarySnapshot.readString(in, buffer);
+                }
+                data.replayAdd(new BookEntry(title, authors, rating, isbn, pages));
+            } else if (type == RECORD_REMOVE_AUTHOR) {
+                data.replayRemoveAuthor(LibrarySnapshot.readString(in, buffer));
+            } else if (type == RECORD_REMOVE_TITLE) {
+                data.replayRemoveTitle(LibrarySnapshot.readString(in, buffer));
+            } else {
+                return false;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Path of the journal file of a generation.
+     * @param directory directory holding the journals
+     * @param generation generation of the journal
+     * @return path of the journal file
+     */
+    private static Path journalFile(Path directory, int generation) {
+        return directory.resolve(JOURNAL_PREFIX + generation + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Extract the generation from a file name.
+     * @param name file name
+     * @param prefix expected prefix of the name
+     * @param suffix expected suffix of the name
+     * @return generation named by the file or -1 if the name does not match
+     */
+    private static int generationOf(String name, String prefix, String suffix) {
+        if (!name.startsWith(prefix) || !name.endsWith(suffix) || name.length() <= prefix.length() + suffix.length()) {
+            return -1;
+        }
+        try {
+            int generation = Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length()));
+            return generation >= 0 ? generation : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
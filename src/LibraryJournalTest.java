@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the write-ahead journal: replaying all changes, discarding a torn record at
+ * the end of the last journal and refusing journals with a gap in them.
+ */
+public class LibraryJournalTest {
+
+    /** Output the library messages are discarded to. */
+    private final CommandOutput quiet = new CommandOutput(new PrintStream(OutputStream.nullOutputStream()),
+            new PrintStream(OutputStream.nullOutputStream()));
+
+    /** Captures the messages printed while journals are opened and closed. */
+    private final StdStreamIntercept intercept = new StdStreamIntercept();
+
+    /** Directory holding the files of the test. */
+    private Path directory;
+
+    /** Directory holding the journal. */
+    private Path journalDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-test");
+        journalDirectory = directory.resolve("journal");
+        intercept.stdCaptureStart();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        intercept.stdCaptureStop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Write a book data file.
+     * @param name file name within the test directory
+     * @param first number of the first book
+     * @param count number of books
+     * @return path of the file
+     */
+    private Path bookFile(String name, int first, int count) throws IOException {
+        StringBuilder rows = new StringBuilder("title,authors,average_rating,isbn,num_pages\n");
+        for (int i = first; i < first + count; i++) {
+            rows.append("Book ").append(i).append(",Author ").append(i % 5).append("-Co Author,")
+                    .append(i % 5).append(".5,").append(i).append(',').append(i + 1).append('\n');
+        }
+        return Files.write(directory.resolve(name), rows.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Open the journal with a new library.
+     * @param mode storage mode of the library
+     * @param compactionThreshold journal size after which the journal is compacted
+     * @return the library or null if the journal could not be opened
+     */
+    private LibraryData open(StorageMode mode, long compactionThreshold) {
+        LibraryData data = new LibraryData(mode);
+        return data.openJournal(journalDirectory, compactionThreshold) ? data : null;
+    }
+
+    /**
+     * Make some changes to a journaled library: two loads and removals by title and author.
+     * @param data journaled library
+     */
+    private void change(LibraryData data) throws IOException {
+        assertTrue(data.loadData(bookFile("first.csv", 0, 20), quiet));
+        assertNotNull(data.removeByTitle("Book 3", quiet));
+        assertEquals(4, data.removeByAuthor("Author 1", quiet));
+        assertTrue(data.loadData(bookFile("second.csv", 15, 10), quiet));
+    }
+
+    private Path journalFile(int generation) {
+        return journalDirectory.resolve("journal-" + generation + ".log");
+    }
+
+    @Test
+    public void testReplayRestoresChanges() throws IOException {
+        for (StorageMode mode : StorageMode.values()) {
+            LibraryData data = open(mode, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD);
+            change(data);
+            List<BookEntry> expected = new ArrayList<>(data.getBookData());
+            data.closeJournal();
+
+            LibraryData restored = open(mode, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD);
+            assertNotNull(restored);
+            assertEquals(mode + " books", expected, restored.getBookData());
+            restored.closeJournal();
+
+            Files.delete(journalFile(0));
+        }
+    }
+
+    @Test
+    public void testReplayAfterCompaction() throws IOException {
+        // a tiny threshold compacts the journal after every change
+        LibraryData data = open(StorageMode.OBJECTS, 1);
+        change(data);
+        List<BookEntry> expected = new ArrayList<>(data.getBookData());
+        data.closeJournal();
+        assertTrue(LibraryJournal.hasSnapshot(journalDirectory));
+        assertFalse("Journals of compacted generations are deleted", Files.exists(journalFile(0)));
+
+        LibraryData restored = open(StorageMode.COLUMNAR, 1);
+        assertNotNull(restored);
+        assertEquals(expected, restored.getBookData());
+        restored.closeJournal();
+    }
+
+    @Test
+    public void testTornTailDiscarded() throws IOException {
+        LibraryData data = open(StorageMode.OBJECTS, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD);
+        assertTrue(data.loadData(bookFile("first.csv", 0, 10), quiet));
+        List<BookEntry> beforeLastChange = new ArrayList<>(data.getBookData());
+        long validLength = Files.size(journalFile(0));
+        assertNotNull(data.removeByTitle("Book 4", quiet));
+        data.closeJournal();
+
+        // cut the journal within its last record, as an interrupted write would
+        long fullLength = Files.size(journalFile(0));
+        for (long length = fullLength - 1; length > validLength; length--) {
+            byte[] content = Files.readAllBytes(journalFile(0));
+            Files.write(journalFile(0), Arrays.copyOf(content, (int) length));
+
+            LibraryData restored = open(StorageMode.OBJECTS, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD);
+            assertNotNull(restored);
+            assertEquals("Books with a journal cut to " + length + " bytes", beforeLastChange, restored.getBookData());
+            restored.closeJournal();
+            assertEquals("The torn record is truncated", validLength, Files.size(journalFile(0)));
+
+            // the record is gone, so the next cut starts from the full journal again
+            Files.write(journalFile(0), Arrays.copyOf(content, (int) fullLength));
+        }
+        assertTrue(intercept.getCapturedStdErr().contains("Discarding damaged journal tail"));
+    }
+
+    @Test
+    public void testCorruptTailDiscardedAndAppendedTo() throws IOException {
+        LibraryData data = open(StorageMode.COLUMNAR, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD);
+        assertTrue(data.loadData(bookFile("first.csv", 0, 10), quiet));
+        List<BookEntry> beforeLastChange = new ArrayList<>(data.getBookData());
+        assertNotNull(data.removeByTitle("Book 4", quiet));
+        data.closeJournal();
+
+        // a flipped bit in the checksum of the last record
+        byte[] content = Files.readAllBytes(journalFile(0));
+        content[content.length - 1] ^= 1;
+        Files.write(journalFile(0), content);
+
+        LibraryData restored = open(StorageMode.COLUMNAR, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD);
+        assertEquals(beforeLastChange, restored.getBookData());
+        // changes after the discarded record are appended where it was and replayed again
+        assertNotNull(restored.removeByTitle("Book 7", quiet));
+        List<BookEntry> expected = new ArrayList<>(restored.getBookData());
+        restored.closeJournal();
+
+        LibraryData reopened = open(StorageMode.COLUMNAR, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD);
+        assertEquals(expected, reopened.getBookData());
+        reopened.closeJournal();
+    }
+
+    @Test
+    public void testMissingGenerationRefused() throws IOException {
+        LibraryData data = open(StorageMode.OBJECTS, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD);
+        assertTrue(data.loadData(bookFile("first.csv", 0, 10), quiet));
+        data.closeJournal();
+
+        // generation 1 is missing between the journals of generation 0 and 2
+        Files.createFile(journalFile(2));
+
+        assertNull(open(StorageMode.OBJECTS, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD));
+        assertTrue(intercept.getCapturedStdErr().contains("Missing journal of generation: 1"));
+    }
+
+    @Test
+    public void testDamagedJournalBeforeLastRefused() throws IOException {
+        LibraryData data = open(StorageMode.OBJECTS, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD);
+        assertTrue(data.loadData(bookFile("first.csv", 0, 10), quiet));
+        data.closeJournal();
+
+        // only the last journal can be torn by an interrupted write
+        byte[] content = Files.readAllBytes(journalFile(0));
+        Files.write(journalFile(0), Arrays.copyOf(content, content.length - 1));
+        Files.createFile(journalFile(1));
+
+        assertNull(open(StorageMode.OBJECTS, LibraryJournal.DEFAULT_COMPACTION_THRESHOLD));
+        assertTrue(intercept.getCapturedStdErr().contains("Damaged journal followed by later generations"));
+        assertEquals("A refused journal is left untouched", content.length - 1, Files.size(journalFile(0)));
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the library, collected process wide.
+ *
+ * Metrics are only collected if the system property {@value #ENABLED_PROPERTY} is true.
+ * The flag is a constant, so while metrics are disabled the checks guarding every
+ * measurement are removed by the JIT and measuring costs nothing.
+ */
+public final class LibraryMetrics {
+
+    /** System property enabling the metrics. */
+    public static final String ENABLED_PROPERTY = "library.metrics";
+
+    /** True if metrics are collected. */
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    /** Default number of seconds between two reports written by a dump. */
+    public static final long DEFAULT_DUMP_PERIOD = 10;
+
+    /** Time the metrics were created, used to compute rates. */
+    private static final long START_NANOS = System.nanoTime();
+
+    /** Time taken to parse commands, per command type. */
+    private static final Map<CommandType, LatencyHistogram> PARSE_TIMES = histograms();
+
+    /** Time taken to execute commands, per command type. */
+    private static final Map<CommandType, LatencyHistogram> EXECUTE_TIMES = histograms();
+
+    /** Number of command lines that could not be parsed. */
+    private static final LongAdder PARSE_FAILURES = new LongAdder();
+
+    /** Number of bytes of book data files loaded. */
+    private static final LongAdder BYTES_LOADED = new LongAdder();
+
+    /** Number of book data rows parsed. */
+    private static final LongAdder ROWS_PARSED = new LongAdder();
+
+    /** Number of book data rows rejected as invalid. */
+    private static final LongAdder ROWS_REJECTED = new LongAdder();
+
+    /** Not to be used. */
+    private LibraryMetrics() {
+        throw new UnsupportedOperationException("This constructor should never be used.");
+    }
+
+    /**
+     * Record the parsing of a command line.
+     * @param command parsed command or null if the line was invalid
+     * @param nanos time taken
+     */
+    public static void recordParse(LibraryCommand command, long nanos) {
+        if (command == null) {
+            PARSE_FAILURES.increment();
+        } else {
+            PARSE_TIMES.get(command.getType()).record(nanos);
+        }
+    }
+
+    /**
+     * Record the execution of commands.
+     * @param type type of the commands
+     * @param count number of commands executed together
+     * @param nanos time taken by all of them, split evenly between them
+     * @throws NullPointerException if the given type is null
+     */
+    public static void recordExecute(CommandType type, int count, long nanos) {
+        Objects.requireNonNull(type, "Given type must not be null.");
+        if (count > 0) {
+            EXECUTE_TIMES.get(type).record(nanos / count, count);
+        }
+    }
+
+    /**
+     * Record the size of a book data file loaded.
+     * @param bytes number of bytes
+     */
+    public static void recordBytesLoaded(long bytes) {
+        BYTES_LOADED.add(bytes);
+    }
+
+    /** Record a book data row parsed successfully. */
+    public static void recordRowParsed() {
+        ROWS_PARSED.increment();
+    }
+
+    /** Record a book data row rejected as invalid. */
+    public static void recordRowRejected() {
+        ROWS_REJECTED.increment();
+    }
+
+    /**
+     * Create a report of all metrics collected so far.
+     * @param cache query cache whose counters are included, or null
+     * @return multi-line report
+     */
+    public static String report(QueryCache cache) {
+        StringBuilder report = new StringBuilder();
+        if (!ENABLED) {
+            report.append("Metrics are disabled, start with -D").append(ENABLED_PROPERTY).append("=true to collect them.");
+            appendCache(report, cache);
+            return report.toString();
+        }
+
+        double seconds = Math.max((System.nanoTime() - START_NANOS) / 1e9, 1e-9);
+        report.append(String.format("Metrics after %.1f s:", seconds));
+        report.append(String.format("%n  %-7s %10s %10s %10s %10s %10s %10s %10s",
+                "COMMAND", "EXECUTED", "MEAN us", "P50 us", "P90 us", "P99 us", "MAX us", "PARSE us"));
+        for (CommandType type : CommandType.values()) {
+            LatencyHistogram execute = EXECUTE_TIMES.get(type);
+            LatencyHistogram parse = PARSE_TIMES.get(type);
+            if (execute.getCount() == 0 && parse.getCount() == 0) {
+                continue;
+            }
+            report.append(String.format("%n  %-7s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.2f",
+                    type, execute.getCount(), execute.getMean() / 1e3,
+                    execute.getValueAtPercentile(50) / 1e3, execute.getValueAtPercentile(90) / 1e3,
+                    execute.getValueAtPercentile(99) / 1e3, execute.getMax() / 1e3, parse.getMean() / 1e3));
+        }
+        report.append(String.format("%n  Invalid command lines: %d", PARSE_FAILURES.sum()));
+
+        long bytes = BYTES_LOADED.sum();
+        long parsed = ROWS_PARSED.sum();
+        long rejected = ROWS_REJECTED.sum();
+        report.append(String.format("%n  Bytes loaded: %d (%.1f per second)", bytes, bytes / seconds));
+        report.append(String.format("%n  Rows parsed: %d (%.1f per second)", parsed, parsed / seconds));
+        report.append(String.format("%n  Rows rejected: %d (%.1f per second)", rejected, rejected / seconds));
+        appendCache(report, cache);
+        return report.toString();
+    }
+
+    /**
+     * Write a report of all metrics to the given file at a fixed rate, on a daemon thread.
+     * Every report replaces the previous one.
+     * @param file file the report is written to
+     * @param periodSeconds seconds between two reports
+     * @param cache query cache whose counters are included, or null
+     * @throws NullPointerException if the given file is null
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public static void startDump(Path file, long periodSeconds, QueryCache cache) {
+        Objects.requireNonNull(file, "Given file must not be null.");
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + periodSeconds);
+        }
+
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "library-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(file, cache), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Write a report of all metrics to the given file, replacing it.
+     * @param file file the report is written to
+     * @param cache query cache whose counters are included, or null
+     */
+    private static void dump(Path file, QueryCache cache) {
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.writeString(tmpFile, report(cache) + System.lineSeparator(), Charset.defaultCharset());
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | SecurityException e) {
+            System.err.println("ERROR: Writing metrics failed: " + e);
+        }
+    }
+
+    /**
+     * Append the counters of a query cache to a report.
+     * @param report report to be extended
+     * @param cache query cache or null
+     */
+    private static void appendCache(StringBuilder report, QueryCache cache) {
+        if (cache != null) {
+            report.append(String.format("%n  Query cache: %d hits, %d misses, %d evictions, %d entries, %d of %d bytes",
+                    cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.getEntryCount(),
+                    cache.getSize(), cache.getBudget()));
+        }
+    }
+
+    /**
+     * @return an empty histogram for every command type
+     */
+    private static Map<CommandType, LatencyHistogram> histograms() {
+        Map<CommandType, LatencyHistogram> histograms = new EnumMap<>(CommandType.class);
+        for (CommandType type : CommandType.values()) {
+            histograms.put(type, new LatencyHistogram());
+        }
+        return histograms;
+    }
+}
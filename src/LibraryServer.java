@@ -0,0 +1,613 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server giving many network clients access to one shared library.
+ *
+ * Clients send the same command lines the library browser reads from the console and
+ * get back the output of every command followed by a prompt, just like on the console.
+ * One selector thread accepts clients and does all socket reads and writes, commands
+ * are executed by a pool of worker threads. The commands of a single client are executed
+ * one after another in the order they were sent; EXIT closes the connection of the client.
+ *
+ * All text is exchanged as UTF-8. Output is sent straight from the output buffer of the
+ * worker, which waits until the client has taken it before filling the buffer again, so
+ * a client not keeping up with the output never holds more than one buffer in memory. ADD, SAVE and LOAD only work on files within the
+ * file directory of the server and are refused if there is none.
+ */
+public class LibraryServer implements Closeable {
+
+    /** Prompt sent after the output of every command. */
+    private static final String PROMPT = "> ";
+
+    /** Greeting sent to every new client. */
+    private static final String GREETING =
+            "\nEnter a library command or type " + CommandType.HELP + " for command overview.\n" + PROMPT;
+
+    /** Size of the output buffer of every worker, output beyond it is sent in several parts. */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    /** Size of the buffer used for reading from clients. */
+    private static final int READ_BUFFER_SIZE = 1 << 13;
+
+    /** Longest command line accepted, in bytes. */
+    private static final int MAX_LINE_LENGTH = 1 << 16;
+
+    /** Number of command lines queued for a client after which its input is no longer read. */
+    private static final int MAX_QUEUED_LINES = 1 << 10;
+
+    /** Time a worker waits for a client to take any of its output before the client is dropped. */
+    private static final long OUTPUT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /** Charset of all text exchanged with clients. */
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    /** Library shared by all clients. */
+    private final LibraryData data;
+
+    /** Directory clients may add, save and load files in, null if they may not use any files. */
+    private final Path fileDirectory;
+
+    /** Interpreter creating commands from the lines sent by clients. */
+    private final CommandInterpreter cmdIntrp;
+
+    /** Channel accepting new clients. */
+    private final ServerSocketChannel serverChannel;
+
+    /** Selector watching the server channel and all client channels. */
+    private final Selector selector;
+
+    /** Threads executing commands. */
+    private final ExecutorService workers;
+
+    /** Output context of every worker, reused for all commands the worker executes. */
+    private final ThreadLocal<WorkerOutput> workerOutputs;
+
+    /** Work handed to the selector thread by the workers. */
+    private final Queue<Runnable> selectorTasks;
+
+    /** Buffer all client input is read into, only used by the selector thread. */
+    private final ByteBuffer readBuffer;
+
+    /** False once the server has been closed. */
+    private volatile boolean running;
+
+    /**
+     * Create a server listening on the given address, refusing all commands working on files.
+     * @param data library shared by all clients
+     * @param address address to listen on, port 0 picks a free port
+     * @param workerCount number of threads executing commands
+     * @throws IOException if the server could not listen on the address
+     * @throws NullPointerException if one of the given parameters is null
+     * @throws IllegalArgumentException if the worker count is not positive
+     */
+    public LibraryServer(LibraryData data, InetSocketAddress address, int workerCount) throws IOException {
+        this(data, address, workerCount, null);
+    }
+
+    /**
+     * Create a server listening on the given address.
+     * @param data library shared by all clients
+     * @param address address to listen on, port 0 picks a free port
+     * @param workerCount number of threads executing commands
+     * @param fileDirectory directory clients may add, save and load files in, relative paths
+     *                      sent by clients are resolved against it; null if clients may not use files
+     * @throws IOException if the server could not listen on the address
+     * @throws NullPointerException if the given data or address is null
+     * @throws IllegalArgumentException if the worker count is not positive
+     */
+    public LibraryServer(LibraryData data, InetSocketAddress address, int workerCount, Path fileDirectory)
+            throws IOException {
+        this.data = Objects.requireNonNull(data, "Given data must not be null.");
+        Objects.requireNonNull(address, "Given address must not be null.");
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+        }
+
+        this.fileDirectory = fileDirectory == null ? null : fileDirectory.toAbsolutePath().normalize();
+        cmdIntrp = new CommandInterpreter();
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        workers = Executors.newFixedThreadPool(workerCount);
+        workerOutputs = ThreadLocal.withInitial(WorkerOutput::new);
+        selectorTasks = new ConcurrentLinkedQueue<>();
+        readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        running = true;
+    }
+
+    /**
+     * @return address the server is listening on
+     * @throws IOException if the address could not be determined
+     */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /** Serve clients until the server is closed. */
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    handle(key);
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR: Library server failed: " + e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    /** Stop serving clients. Commands already running are finished first. */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Handle a ready channel.
+     * @param key selection key of the channel
+     */
+    private void handle(SelectionKey key) {
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+
+            Connection connection = (Connection) key.attachment();
+            if (key.isReadable()) {
+                connection.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.write();
+            }
+        } catch (IOException e) {
+            if (key.attachment() instanceof Connection) {
+                ((Connection) key.attachment()).close();
+            }
+        }
+    }
+
+    /**
+     * Accept a new client.
+     * @throws IOException if the client could not be registered
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connection.send(GREETING.getBytes(CHARSET));
+    }
+
+    /**
+     * Execute a command line for a client on the current worker thread.
+     * Everything the command prints is collected in the output buffer of the worker and
+     * handed to the selector thread whenever the buffer is full and once the command is done.
+     * The client is told the command is done however it ends, so its next command can run.
+     * @param connection client that sent the line
+     * @param inputLine command line
+     */
+    private void execute(Connection connection, String inputLine) {
+        WorkerOutput worker = workerOutputs.get();
+        CommandOutput output = worker.output;
+        boolean exit = false;
+
+        worker.buffer.reset();
+        worker.buffer.setTarget(connection.stream);
+        try {
+            try {
+                LibraryCommand command = cmdIntrp.parseCommand(inputLine, output);
+                if (command == null) {
+                    output.err().println("ERROR: Given command input is invalid: " + inputLine);
+                } else if (command instanceof ExitCmd) {
+                    exit = true;
+                } else {
+                    LibraryCommand confined = confine(command, output);
+                    if (confined == null && fileDirectory == null) {
+                        output.err().println("ERROR: " + command.getType() + " is not available to network clients.");
+                    } else if (confined == null) {
+                        output.err().println("ERROR: " + command.getType()
+                                + " only accepts relative paths within the server file directory: " + inputLine);
+                    } else {
+                        cmdIntrp.executeCommand(confined, data, output);
+                    }
+                }
+            } catch (RuntimeException e) {
+                output.err().println("ERROR: Command failed: " + e);
+            }
+
+            if (!exit) {
+                output.out().print(PROMPT);
+            }
+            output.flush();
+        } finally {
+            worker.buffer.reset();
+            boolean closeAfter = exit;
+            post(() -> connection.finished(closeAfter));
+        }
+    }
+
+    /**
+     * Confine a command working on a file to the file directory of the server.
+     * @param command command sent by a client
+     * @param output output context of the client
+     * @return the command itself if it does not work on a file, a command working on the file
+     *         within the file directory, or null if the client may not use the file
+     */
+    private LibraryCommand confine(LibraryCommand command, CommandOutput output) {
+        Path file;
+        if (command instanceof AddCmd) {
+            file = ((AddCmd) command).getFilePath();
+        } else if (command instanceof SaveCmd) {
+            file = ((SaveCmd) command).getSnapshotPath();
+        } else if (command instanceof LoadCmd) {
+            file = ((LoadCmd) command).getSnapshotPath();
+        } else {
+            return command;
+        }
+
+        if (fileDirectory == null || file.isAbsolute()) {
+            return null;
+        }
+        Path resolved = fileDirectory.resolve(file).normalize();
+        if (!resolved.startsWith(fileDirectory) || resolved.equals(fileDirectory)) {
+            return null;
+        }
+
+        String argument = resolved.toString();
+        if (command instanceof AddCmd) {
+            return new AddCmd(argument, output);
+        } else if (command instanceof SaveCmd) {
+            return new SaveCmd(argument, output);
+        } else {
+            return new LoadCmd(argument, output);
+        }
+    }
+
+    /**
+     * Hand work to the selector thread.
+     * @param task work to be done by the selector thread
+     */
+    private void post(Runnable task) {
+        selectorTasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Close all client channels, the server channel and the worker pool.
+     * Clients are closed first, so no worker keeps waiting for its output to be sent.
+     */
+    private void shutdown() {
+        workers.shutdown();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                ((Connection) key.attachment()).close();
+            } else {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    // closing anyway
+                }
+            }
+        }
+
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    /** Output buffer and context of a worker thread. */
+    private static class WorkerOutput {
+
+        /** Buffer collecting the output of the current command. */
+        private final OutputBuffer buffer;
+
+        /** Output context printing to the buffer. */
+        private final CommandOutput output;
+
+        /** Create the output of a new worker. */
+        WorkerOutput() {
+            buffer = new OutputBuffer(OUTPUT_BUFFER_SIZE);
+            output = CommandOutput.of(buffer, buffer, CHARSET);
+        }
+    }
+
+    /**
+     * State of a single client, only used by the selector thread unless noted otherwise.
+     * The output byte counts are shared with the workers and guarded by the connection.
+     */
+    private class Connection {
+
+        /** Channel of the client. */
+        private final SocketChannel channel;
+
+        /** Stream the workers write the output of the commands of this client to. */
+        private final OutputStream stream;
+
+        /** Selection key of the channel. */
+        private SelectionKey key;
+
+        /** Bytes of the command line read so far. */
+        private final ByteArrayOutputStream lineBuffer;
+
+        /** Complete command lines waiting to be executed. */
+        private final Deque<String> lines;
+
+        /** Output waiting to be sent. */
+        private final Deque<ByteBuffer> output;
+
+        /** Number of output bytes queued for sending so far. */
+        private long queuedOutput;
+
+        /** Number of output bytes sent so far. */
+        private long sentOutput;
+
+        /** True once the client did not take its output in time, guarded by the connection. */
+        private boolean stalled;
+
+        /** True while a command of this client is executed. */
+        private boolean busy;
+
+        /** True once no more input will be read, the channel is closed when all output is sent. */
+        private boolean closing;
+
+        /**
+         * Create the state of a new client.
+         * @param channel channel of the client
+         */
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            stream = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    // the bytes are sent without copying them, so the caller may only reuse them once sent
+                    ByteBuffer chunk = ByteBuffer.wrap(b, off, len);
+                    long end = count(len);
+                    post(() -> queue(chunk));
+                    awaitSent(end);
+                }
+            };
+            lineBuffer = new ByteArrayOutputStream();
+            lines = new ArrayDeque<>();
+            output = new ArrayDeque<>();
+            queuedOutput = 0;
+            sentOutput = 0;
+            stalled = false;
+            busy = false;
+            closing = false;
+        }
+
+        /**
+         * Read available input and queue all complete command lines.
+         * @throws IOException if reading failed
+         */
+        void read() throws IOException {
+            readBuffer.clear();
+            int count = channel.read(readBuffer);
+            if (count == -1) {
+                // the client will not send anything more, finish its queued commands first
+                closing = true;
+                updateInterest();
+                return;
+            }
+
+            byte[] bytes = readBuffer.array();
+            int lineStart = 0;
+            for (int i = 0; i < count; i++) {
+                if (bytes[i] == '\n') {
+                    lineBuffer.write(bytes, lineStart, i - lineStart);
+                    lines.add(decodeLine());
+                    lineStart = i + 1;
+                }
+            }
+            lineBuffer.write(bytes, lineStart, count - lineStart);
+
+            if (lineBuffer.size() > MAX_LINE_LENGTH) {
+                lines.clear();
+                closing = true;
+                send(("ERROR: Command line too long.\n").getBytes(CHARSET));
+            }
+            dispatch();
+        }
+
+        /**
+         * Send as much of the waiting output as the channel takes.
+         * @throws IOException if writing failed
+         */
+        void write() throws IOException {
+            long sent = 0;
+            while (!output.isEmpty()) {
+                ByteBuffer buffer = output.peek();
+                sent += channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                output.poll();
+            }
+            if (sent > 0) {
+                synchronized (this) {
+                    sentOutput += sent;
+                    notifyAll();
+                }
+            }
+            dispatch();
+        }
+
+        /**
+         * Note that the running command is done, its output has already been sent.
+         * @param closeAfter true if the client asked to close the connection
+         */
+        void finished(boolean closeAfter) {
+            busy = false;
+            if (closeAfter) {
+                lines.clear();
+                closing = true;
+            }
+            dispatch();
+        }
+
+        /**
+         * Queue output of the selector thread for sending.
+         * @param bytes output to be sent
+         */
+        void send(byte[] bytes) {
+            count(bytes.length);
+            queue(ByteBuffer.wrap(bytes));
+        }
+
+        /**
+         * Queue output already counted for sending.
+         * @param chunk output to be sent
+         */
+        void queue(ByteBuffer chunk) {
+            output.add(chunk);
+            dispatch();
+        }
+
+        /**
+         * Count output about to be queued. Called by the selector thread and the workers.
+         * @param length number of bytes about to be queued
+         * @return number of bytes sent once the output has been sent
+         */
+        synchronized long count(int length) {
+            queuedOutput += length;
+            return queuedOutput;
+        }
+
+        /**
+         * Wait until the client has taken all output queued so far. Called by the workers.
+         * A client not taking any output for OUTPUT_TIMEOUT_NANOS is dropped.
+         * @param end number of bytes sent once the output has been sent
+         * @throws IOException if the connection has been closed or dropped, or the worker was interrupted
+         */
+        synchronized void awaitSent(long end) throws IOException {
+            long sent = sentOutput;
+            long deadline = System.nanoTime() + OUTPUT_TIMEOUT_NANOS;
+            while (sentOutput < end && channel.isOpen() && !stalled) {
+                if (sentOutput != sent) {
+                    sent = sentOutput;
+                    deadline = System.nanoTime() + OUTPUT_TIMEOUT_NANOS;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    stalled = true;
+                    post(this::close);
+                    break;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for output to be sent.");
+                }
+            }
+            if (sentOutput < end) {
+                throw new IOException(stalled ? "Client did not take its output in time." : "Connection has been closed.");
+            }
+        }
+
+        /** Start the next command unless one is running. */
+        void dispatch() {
+            if (!busy && !lines.isEmpty()) {
+                busy = true;
+                String line = lines.poll();
+                workers.execute(() -> execute(this, line));
+            }
+            updateInterest();
+        }
+
+        /** Update the operations the selector watches for, closing the channel once it is done. */
+        void updateInterest() {
+            if (!key.isValid()) {
+                return;
+            }
+            if (closing && !busy && lines.isEmpty() && output.isEmpty()) {
+                close();
+                return;
+            }
+
+            int ops = 0;
+            if (!closing && lines.size() < MAX_QUEUED_LINES) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (!output.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        /** Close the channel of the client, releasing workers waiting for its output to be sent. */
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Decode the buffered command line, dropping a trailing carriage return.
+         * @return the command line
+         */
+        private String decodeLine() {
+            String line = new String(lineBuffer.toByteArray(), CHARSET);
+            lineBuffer.reset();
+            return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Binary snapshot of all book entries of a library.
+ *
+ * A snapshot is read back without any text parsing. It is laid out as follows,
+ * all numbers big-endian and all strings as UTF-8 prefixed with their byte length:
+ * <ol>
+ *     <li>the magic bytes "LIBSNAP", the format version, the book count, the author count
+ *     and the total number of author references</li>
+ *     <li>the author table, every distinct author name once</li>
+ *     <li>fixed-width columns with the rating, page count and author count of every book</li>
+ *     <li>the author table indexes of all books, in book order</li>
+ *     <li>the title and ISBN of every book, in book order</li>
+ * </ol>
+ */
+public final class LibrarySnapshot {
+
+    /** Bytes every snapshot starts with. */
+    private static final byte[] MAGIC = "LIBSNAP".getBytes(StandardCharsets.US_ASCII);
+
+    /** Version of the snapshot format written. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Buffer size used for reading and writing snapshots. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Suffix of the temporary file a snapshot is written to before it replaces the target. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Suffix of the temporary file titles and ISBNs are collected in while a snapshot is written. */
+    private static final String TEXTS_SUFFIX = ".texts.tmp";
+
+    /**
+     * Fewest bytes every book takes: its rating, page count and author count
+     * columns and the length prefixes of its title and ISBN.
+     */
+    private static final long MIN_BOOK_SIZE = 20;
+
+    /** Fewest bytes every author table entry and author reference takes. */
+    private static final long MIN_AUTHOR_SIZE = 4;
+
+    /** Not to be used. */
+    private LibrarySnapshot() {
+        throw new UnsupportedOperationException("This constructor should never be used.");
+    }
+
+    /**
+     * Write a snapshot of the given book entries.
+     *
+     * The snapshot is written and synced to a temporary file next to the target first,
+     * which then atomically replaces the target. A failed or interrupted write therefore
+     * leaves the previous snapshot untouched.
+     *
+     * Every book is only read once: its columns are collected in memory, while its title
+     * and ISBN go to a second temporary file, which is appended once the columns are written.
+     *
+     * @param books book entries in library order
+     * @param snapshotFile path of the snapshot file, replaced if it exists
+     * @throws IOException if the snapshot could not be written
+     * @throws NullPointerException if one of the given parameters is null
+     */
+    public static void write(List<BookEntry> books, Path snapshotFile) throws IOException {
+        Objects.requireNonNull(books, "Given books must not be null.");
+        Objects.requireNonNull(snapshotFile, "Given file path must not be null.");
+
+        // a random part keeps concurrent writes of the same snapshot apart
+        String prefix = snapshotFile.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        Path temp = snapshotFile.resolveSibling(prefix + TEMP_SUFFIX);
+        Path texts = snapshotFile.resolveSibling(prefix + TEXTS_SUFFIX);
+        boolean replaced = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+                 FileChannel textChannel = FileChannel.open(texts, StandardOpenOption.READ,
+                         StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+                 DataOutputStream out = new DataOutputStream(
+                         new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+                 DataOutputStream textOut = new DataOutputStream(
+                         new BufferedOutputStream(Channels.newOutputStream(textChannel), BUFFER_SIZE))) {
+                writeContent(books, out, textOut);
+                textOut.flush();
+                out.flush();
+                append(textChannel, channel);
+                channel.force(true);
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            replaced = true;
+        } finally {
+            if (!replaced) {
+                deleteQuietly(temp);
+            }
+            deleteQuietly(texts);
+        }
+    }
+
+    /**
+     * Write all sections of a snapshot but the titles and ISBNs, which are written to
+     * a separate stream in the same pass over the books.
+     * @param books book entries in library order
+     * @param out stream the snapshot is written to
+     * @param textOut stream the title and ISBN of every book are written to
+     * @throws IOException if writing failed
+     */
+    private static void writeContent(List<BookEntry> books, DataOutputStream out, DataOutputStream textOut)
+            throws IOException {
+        int bookCount = books.size();
+        float[] ratings = new float[bookCount];
+        int[] pages = new int[bookCount];
+        int[] authorCounts = new int[bookCount];
+        int[] authorRefIds = new int[Math.max(bookCount, 16)];
+        int authorRefs = 0;
+
+        Map<String, Integer> authorIds = new HashMap<>();
+        String[] authorTable = new String[16];
+        int book = 0;
+        for (BookEntry entry : books) {
+            String[] authors = entry.getAuthors();
+            ratings[book] = entry.getRating();
+            pages[book] = entry.getPages();
+            authorCounts[book] = authors.length;
+            for (String author : authors) {
+                Integer id = authorIds.get(author);
+                if (id == null) {
+                    id = authorIds.size();
+                    if (id == authorTable.length) {
+                        authorTable = Arrays.copyOf(authorTable, authorTable.length * 2);
+                    }
+                    authorTable[id] = author;
+                    authorIds.put(author, id);
+                }
+                if (authorRefs == authorRefIds.length) {
+                    authorRefIds = Arrays.copyOf(authorRefIds, authorRefIds.length * 2);
+                }
+                authorRefIds[authorRefs++] = id;
+            }
+            writeString(textOut, entry.getTitle());
+            writeString(textOut, entry.getISBN());
+            book++;
+        }
+
+        out.write(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(bookCount);
+        out.writeInt(authorIds.size());
+        out.writeInt(authorRefs);
+
+        for (int id = 0; id < authorIds.size(); id++) {
+            writeString(out, authorTable[id]);
+        }
+        for (int i = 0; i < bookCount; i++) {
+            out.writeFloat(ratings[i]);
+        }
+        for (int i = 0; i < bookCount; i++) {
+            out.writeInt(pages[i]);
+        }
+        for (int i = 0; i < bookCount; i++) {
+            out.writeInt(authorCounts[i]);
+        }
+        for (int i = 0; i < authorRefs; i++) {
+            out.writeInt(authorRefIds[i]);
+        }
+    }
+
+    /**
+     * Append the whole content of a file to the end of another one.
+     * @param source channel of the file appended
+     * @param target channel of the file appended to, positioned at its end
+     * @throws IOException if copying failed
+     */
+    private static void append(FileChannel source, FileChannel target) throws IOException {
+        long size = source.size();
+        long position = 0;
+        while (position < size) {
+            position += source.transferTo(position, size - position, target);
+        }
+    }
+
+    /**
+     * Delete a temporary file left behind by a failed write, if possible.
+     * @param temp temporary file
+     */
+    private static void deleteQuietly(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException | SecurityException e) {
+            // the write has failed already, a leftover temporary file does no harm
+        }
+    }
+
+    /**
+     * Read a snapshot, passing every book entry to the given consumer in library order.
+     * @param snapshotFile path of the snapshot file
+     * @param authorDictionary dictionary providing the canonical author names
+     * @param consumer receives every book entry of the snapshot
+     * @throws IOException if the snapshot could not be read or is not a valid snapshot
+     * @throws NullPointerException if one of the given parameters is null
+     */
+    public static void read(Path snapshotFile, AuthorDictionary authorDictionary, Consumer<BookEntry> consumer)
+            throws IOException {
+        Objects.requireNonNull(snapshotFile, "Given file path must not be null.");
+        Objects.requireNonNull(authorDictionary, "Given dictionary must not be null.");
+        Objects.requireNonNull(consumer, "Given consumer must not be null.");
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotFile), BUFFER_SIZE))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a library snapshot: " + snapshotFile);
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+
+            int bookCount = readCount(in);
+            int authorCount = readCount(in);
+            int authorRefs = readCount(in);
+            // every count takes space in the file, so a corrupt header is rejected before anything is allocated
+            long fileSize = Files.size(snapshotFile);
+            if (bookCount * MIN_BOOK_SIZE + (authorCount + (long) authorRefs) * MIN_AUTHOR_SIZE > fileSize) {
+                throw new IOException("Corrupt snapshot, counts exceed the file size: " + snapshotFile);
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            String[] authorTable = new String[authorCount];
+            for (int id = 0; id < authorCount; id++) {
+                String author = readString(in, buffer, fileSize);
+                authorTable[id] = authorDictionary.nameOf(authorDictionary.idOf(author));
+            }
+
+            float[] ratings = new float[bookCount];
+            for (int i = 0; i < bookCount; i++) {
+                ratings[i] = in.readFloat();
+            }
+            int[] pages = new int[bookCount];
+            for (int i = 0; i < bookCount; i++) {
+                pages[i] = in.readInt();
+            }
+            int[] authorCounts = new int[bookCount];
+            long countedRefs = 0;
+            for (int i = 0; i < bookCount; i++) {
+                authorCounts[i] = readCount(in);
+                countedRefs += authorCounts[i];
+            }
+            if (countedRefs != authorRefs) {
+                throw new IOException("Corrupt snapshot, author counts do not add up: " + snapshotFile);
+            }
+            int[] authorIds = new int[authorRefs];
+            for (int i = 0; i < authorRefs; i++) {
+                authorIds[i] = in.readInt();
+                Objects.checkIndex(authorIds[i], authorCount);
+            }
+
+            int authorRef = 0;
+            for (int i = 0; i < bookCount; i++) {
+                String[] authors = new String[authorCounts[i]];
+                for (int j = 0; j < authors.length; j++) {
+                    authors[j] = authorTable[authorIds[authorRef++]];
+                }
+                String title = readString(in, buffer, fileSize);
+                String isbn = readString(in, buffer, fileSize);
+                consumer.accept(new BookEntry(title, authors, ratings[i], isbn, pages[i]));
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt snapshot: " + snapshotFile, e);
+        }
+    }
+
+    /**
+     * Write a string as UTF-8 prefixed with its byte length.
+     * @param out stream to write to
+     * @param value string to be written
+     * @throws IOException if writing failed
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read a string written by writeString.
+     * @param in stream to read from
+     * @param buffer reusable buffer for strings up to its length
+     * @return the string read
+     * @throws IOException if reading failed or the length is invalid
+     */
+    static String readString(DataInputStream in, byte[] buffer) throws IOException {
+        return readString(in, buffer, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read a string written by writeString, which cannot be longer than the given limit.
+     * @param in stream to read from
+     * @param buffer reusable buffer for strings up to its length
+     * @param maxLength largest valid byte length, such as the size of the file read
+     * @return the string read
+     * @throws IOException if reading failed or the length is invalid
+     */
+    private static String readString(DataInputStream in, byte[] buffer, long maxLength) throws IOException {
+        int length = readCount(in);
+        if (length > maxLength) {
+            throw new IOException("Corrupt snapshot, string length exceeds the file size: " + length);
+        }
+        byte[] bytes = length <= buffer.length ? buffer : new byte[length];
+        in.readFully(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a count, which must not be negative.
+     * @param in stream to read from
+     * @return the count read
+     * @throws IOException if reading failed or the count is negative
+     */
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt snapshot, negative count: " + count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the binary snapshot format: writing and reading back all books, and
+ * rejecting damaged files before anything is allocated for their counts.
+ */
+public class LibrarySnapshotTest {
+
+    /** Byte offset of the book count in the header, after the magic bytes and the format version. */
+    private static final int BOOK_COUNT_OFFSET = 11;
+
+    /** Byte offset of the author count in the header. */
+    private static final int AUTHOR_COUNT_OFFSET = 15;
+
+    /** Byte offset of the total number of author references in the header. */
+    private static final int AUTHOR_REFS_OFFSET = 19;
+
+    /** Books written in the tests, sharing authors and using characters outside of ASCII. */
+    private static final List<BookEntry> BOOKS = Arrays.asList(
+            new BookEntry("Harry Potter", new String[] { "J.K. Rowling", "Mary GrandPr\u00e9" }, 4.57f, "0439785960", 652),
+            new BookEntry("Quidditch", new String[] { "J.K. Rowling" }, 3.5f, "0439554934", 56),
+            new BookEntry("", new String[] { "" }, 0f, "", 0),
+            new BookEntry("Same Author Twice", new String[] { "Ann", "Ann" }, 5f, "1", Integer.MAX_VALUE),
+            new BookEntry("No Authors", new String[0], 2.25f, "2", 1));
+
+    /** Output the library messages are discarded to. */
+    private final CommandOutput quiet = new CommandOutput(new PrintStream(OutputStream.nullOutputStream()),
+            new PrintStream(OutputStream.nullOutputStream()));
+
+    /** Directory holding the snapshot files of the test. */
+    private Path directory;
+
+    /** Snapshot file of the test. */
+    private Path snapshotFile;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-test");
+        snapshotFile = directory.resolve("library.snap");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private List<BookEntry> readAll(AuthorDictionary dictionary) throws IOException {
+        List<BookEntry> books = new ArrayList<>();
+        LibrarySnapshot.read(snapshotFile, dictionary, books::add);
+        return books;
+    }
+
+    private static void assertSameBooks(List<BookEntry> expected, List<BookEntry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+            assertEquals(expected.get(i).getRating(), actual.get(i).getRating(), 0f);
+            assertEquals(expected.get(i).getPages(), actual.get(i).getPages());
+        }
+    }
+
+    /**
+     * Replace an int of the snapshot file.
+     * @param offset byte offset of the int
+     * @param value new value
+     */
+    private void patchInt(int offset, int value) throws IOException {
+        byte[] content = Files.readAllBytes(snapshotFile);
+        ByteBuffer.wrap(content).putInt(offset, value);
+        Files.write(snapshotFile, content);
+    }
+
+    private void assertRejected(String message) {
+        assertThrows(message, IOException.class, () -> readAll(new AuthorDictionary()));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        LibrarySnapshot.write(BOOKS, snapshotFile);
+
+        AuthorDictionary dictionary = new AuthorDictionary();
+        List<BookEntry> books = readAll(dictionary);
+        assertSameBooks(BOOKS, books);
+
+        // author names come from the dictionary, so equal names are the same instance
+        assertSame(books.get(0).getAuthors()[0], books.get(1).getAuthors()[0]);
+        assertSame(dictionary.nameOf(dictionary.find("Ann")), books.get(3).getAuthors()[1]);
+
+        // nothing but the snapshot is left behind
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testEmptyRoundTrip() throws IOException {
+        LibrarySnapshot.write(new ArrayList<>(), snapshotFile);
+        assertTrue(readAll(new AuthorDictionary()).isEmpty());
+    }
+
+    @Test
+    public void testWriteReplacesSnapshot() throws IOException {
+        LibrarySnapshot.write(BOOKS, snapshotFile);
+        LibrarySnapshot.write(BOOKS.subList(0, 2), snapshotFile);
+
+        assertSameBooks(BOOKS.subList(0, 2), readAll(new AuthorDictionary()));
+    }
+
+    @Test
+    public void testLibraryRoundTrip() throws IOException {
+        for (StorageMode mode : StorageMode.values()) {
+            LibraryData data = new LibraryData(mode);
+            LibrarySnapshot.write(BOOKS, snapshotFile);
+            assertTrue(data.loadSnapshot(snapshotFile, quiet));
+            data.removeByTitle("Quidditch", quiet);
+
+            Path copy = directory.resolve("copy.snap");
+            assertTrue(data.saveSnapshot(copy, quiet));
+            LibraryData restored = new LibraryData(mode);
+            assertTrue(restored.loadSnapshot(copy, quiet));
+
+            assertSameBooks(data.getBookData(), restored.getBookData());
+            assertEquals(BOOKS.size() - 1, restored.getBookData().size());
+        }
+    }
+
+    @Test
+    public void testWrongMagicRejected() throws IOException {
+        LibrarySnapshot.write(BOOKS, snapshotFile);
+        byte[] content = Files.readAllBytes(snapshotFile);
+        content[0] = 'X';
+        Files.write(snapshotFile, content);
+
+        assertRejected("Wrong magic bytes");
+    }
+
+    @Test
+    public void testUnknownVersionRejected() throws IOException {
+        LibrarySnapshot.write(BOOKS, snapshotFile);
+        patchInt(BOOK_COUNT_OFFSET - Integer.BYTES, 99);
+
+        assertRejected("Unknown format version");
+    }
+
+    @Test
+    public void testCountsBeyondFileSizeRejected() throws IOException {
+        int[] offsets = { BOOK_COUNT_OFFSET, AUTHOR_COUNT_OFFSET, AUTHOR_REFS_OFFSET };
+        for (int offset : offsets) {
+            // counts this large would take gigabytes if they were allocated before being checked
+            LibrarySnapshot.write(BOOKS, snapshotFile);
+            patchInt(offset, Integer.MAX_VALUE);
+            assertRejected("Count at offset " + offset + " beyond the file size");
+
+            LibrarySnapshot.write(BOOKS, snapshotFile);
+            patchInt(offset, -1);
+            assertRejected("Negative count at offset " + offset);
+        }
+    }
+
+    @Test
+    public void testAuthorCountsNotAddingUpRejected() throws IOException {
+        LibrarySnapshot.write(BOOKS, snapshotFile);
+        patchInt(AUTHOR_REFS_OFFSET, 1);
+
+        assertRejected("Author references not matching the author counts");
+    }
+
+    @Test
+    public void testAuthorIndexOutOfRangeRejected() throws IOException {
+        LibrarySnapshot.write(BOOKS.subList(0, 1), snapshotFile);
+        // a single book with two authors: its author references are the two ints before its title and ISBN
+        byte[] content = Files.readAllBytes(snapshotFile);
+        int textBytes = 2 * Integer.BYTES + "Harry Potter".length() + "0439785960".length();
+        ByteBuffer.wrap(content).putInt(content.length - textBytes - Integer.BYTES, 2);
+        Files.write(snapshotFile, content);
+
+        assertRejected("Author index beyond the author table");
+    }
+
+    @Test
+    public void testTruncatedSnapshotRejected() throws IOException {
+        LibrarySnapshot.write(BOOKS, snapshotFile);
+        byte[] content = Files.readAllBytes(snapshotFile);
+        for (int length = 0; length < content.length; length++) {
+            Files.write(snapshotFile, Arrays.copyOf(content, length));
+            assertRejected("Snapshot cut after " + length + " bytes");
+        }
+    }
+}
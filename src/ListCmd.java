@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
 
@@ -13,6 +14,17 @@ public class ListCmd extends LibraryCommand {
         super(CommandType.LIST, argumentInput);
     }
 
+    /**
+     * Creates List Command, printing parse errors to the given output context.
+     * @param argumentInput argumentInput expected to be either "long" or "short" or blank.
+     * @param output output context errors found while parsing the argument are printed to.
+     * @throws IllegalArgumentException if given arguments are invalid.
+     * @throws NullPointerException if any of the given parameters are null.
+     */
+    public ListCmd(String argumentInput, CommandOutput output) {
+        super(CommandType.LIST, argumentInput, output);
+    }
+
     /**
      * User input of either "long" or "short" or blank.
      */
@@ -22,28 +34,32 @@ public class ListCmd extends LibraryCommand {
      * Executes the List Command, if long then all information about the books are printed, if short or blank
      * then only title of books are printed.
      * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
      * @throws NullPointerException if given data is null.
      * @throws IllegalArgumentException if given data is invalid.
      */
     @Override
-    public void execute(LibraryData data) {
+    public void execute(LibraryData data, CommandOutput output) {
         Objects.requireNonNull(data, "ERROR: INPUT CANNOT BE NULL");
 
         List<BookEntry> bookData = data.getBookData();
 
         if (bookData.isEmpty()) {
-            System.err.println("The library has no book entries.");
+            output.err().println("The library has no book entries.");
 
         }else {
-            System.out.println(bookData.size() + " books in library:");
+            OutputSink out = new OutputSink(output.out());
+            out.println(bookData.size() + " books in library:");
 
             if (printSL.equals("long")) {
-                printLong(bookData);
+                printLong(bookData, out, output);
             }else if ((printSL.equals("short")) || (printSL.isBlank())) {
-                printShort(bookData);
+                printShort(bookData, out);
             }else {
-            System.err.println("ERROR: Invalid Command.");
+            out.flush();
+            output.err().println("ERROR: Invalid Command.");
             }
+            out.flush();
         }
     }
 
@@ -61,7 +77,7 @@ public class ListCmd extends LibraryCommand {
             printSL = argumentInput;
             return true;
         } else {
-                System.err.println("ERROR: ILLEGAL INPUT");
+                getParseOutput().err().println("ERROR: ILLEGAL INPUT");
             return false;
         }
     }
@@ -69,20 +85,28 @@ public class ListCmd extends LibraryCommand {
     /**
      * Print all information in the format specified for BookEntries toString method.
      * @param bookData book entries in library.
+     * @param out sink the books are written to.
+     * @param output output context errors are printed to.
      */
-    private void printLong(List<BookEntry> bookData) {
-        for (BookEntry book : bookData) {
-            System.out.println(book.toString() + "\n");
+    private void printLong(List<BookEntry> bookData, OutputSink out, CommandOutput output) {
+        try {
+            for (BookEntry book : bookData) {
+                book.appendTo(out);
+                out.println("\n");
+            }
+        } catch (IOException e) {
+            output.err().println("ERROR: Printing book data failed: " + e);
         }
     }
 
     /**
      * Prints each books title.
      * @param bookData book entries in library.
+     * @param out sink the titles are written to.
      */
-    private void printShort(List<BookEntry> bookData) {
+    private void printShort(List<BookEntry> bookData, OutputSink out) {
         for (BookEntry book : bookData) {
-            System.out.println(book.getTitle());
+            out.println(book.getTitle());
         }
     }
 
@@ -0,0 +1,70 @@
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list of the books of a store not removed when it was created, in slot order.
+ *
+ * The list is built from a list of all slots of the store and a copy of the removed
+ * slots, so creating it only costs copying the removed slots. The positions of the
+ * remaining books are only looked up once the list is first read.
+ */
+public class LiveBookList extends AbstractList<BookEntry> implements RandomAccess {
+
+    /** Books of all slots, including removed ones. */
+    private final List<BookEntry> slots;
+
+    /** Slots of removed books, never changed. */
+    private final BitSet removed;
+
+    /** Number of books not removed. */
+    private final int size;
+
+    /** Slot of every book not removed, null until the list is first read. */
+    private volatile int[] liveSlots;
+
+    /**
+     * Create a list of the books not removed.
+     * @param slots books of all slots, including removed ones, must never change
+     * @param removed slots of removed books, all below the number of slots, must not be changed afterwards
+     * @throws NullPointerException if the given slots or removed slots are null
+     */
+    public LiveBookList(List<BookEntry> slots, BitSet removed) {
+        this.slots = Objects.requireNonNull(slots, "Given slots must not be null.");
+        this.removed = Objects.requireNonNull(removed, "Given removed slots must not be null.");
+        size = slots.size() - removed.cardinality();
+        liveSlots = null;
+    }
+
+    @Override
+    public BookEntry get(int index) {
+        Objects.checkIndex(index, size);
+        return slots.get(liveSlots()[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the slot of every book not removed, looking them up on first use.
+     * Threads reading the list at once may each look them up, with the same result.
+     * @return slots of the books in list order
+     */
+    private int[] liveSlots() {
+        int[] found = liveSlots;
+        if (found == null) {
+            found = new int[size];
+            int slot = removed.nextClearBit(0);
+            for (int i = 0; i < size; i++) {
+                found[i] = slot;
+                slot = removed.nextClearBit(slot + 1);
+            }
+            liveSlots = found;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,11 @@
+/** All available modes for loading book data from file. */
+public enum LoadMode {
+    /** Read the whole file into memory and parse it afterwards. */
+    STANDARD,
+    /** Read the file in buffered chunks and merge each entry as soon as it is parsed. */
+    STREAMING,
+    /** Read the whole file into memory and parse chunks of lines in parallel. */
+    PARALLEL,
+    /** Memory-map the file and decode each row only when it is merged. */
+    MAPPED
+}
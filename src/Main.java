@@ -1,12 +1,231 @@
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 /** Main entry point into the library browser program. */
 public class Main {
 
+    /** Option prefix selecting the mode used for loading book data files. */
+    private static final String LOAD_MODE_OPTION = "--load-mode=";
+
+    /** Option prefix selecting the mode used for storing book data. */
+    private static final String STORAGE_OPTION = "--storage=";
+
+    /** Option prefix naming a snapshot file loaded on startup. */
+    private static final String SNAPSHOT_OPTION = "--snapshot=";
+
+    /** Option prefix naming the directory all changes are journaled in. */
+    private static final String JOURNAL_OPTION = "--journal=";
+
+    /** Option prefix selecting the address library commands are served on instead of the console. */
+    private static final String SERVER_OPTION = "--server=";
+
+    /** Option prefix naming the directory network clients may add, save and load files in. */
+    private static final String SERVER_FILES_OPTION = "--server-files=";
+
+    /** Fewest threads executing server commands, as a worker waits while its client is slow to read. */
+    private static final int MIN_SERVER_WORKERS = 4;
+
+    /** Option prefix naming a file the metrics are written to periodically. */
+    private static final String METRICS_DUMP_OPTION = "--metrics-dump=";
+
+    /** Option running commands from standard input without prompts. */
+    private static final String BATCH_OPTION = "--batch";
+
+    /** Option prefix naming a command script run without prompts. */
+    private static final String BATCH_SCRIPT_OPTION = "--batch=";
+
     /**
      * Start the library browser program.
-     * @param args not used for arguments
+     * @param args optional {@code --load-mode=STANDARD|STREAMING|PARALLEL|MAPPED} selecting how ADD reads files
+     *             and {@code --storage=OBJECTS|COLUMNAR} selecting how the book data is kept in memory
+     *             and {@code --snapshot=path} naming a snapshot file loaded before the first command
+     *             and {@code --journal=directory} naming the directory the library is restored from and
+     *             all changes are journaled in, replayed on top of the snapshot if one is given as well
+     *             and {@code --server=[host:]port} serving library commands to network clients on the
+     *             given address, the loopback address if no host is given, instead of the console
+     *             and {@code --server-files=directory} naming the only directory network clients may add,
+     *             save and load files in, without it network clients cannot use these commands
+     *             and {@code --batch} or {@code --batch=path} running the commands of standard input or
+     *             of the given script without prompts, followed by a timing summary
+     *             and {@code --metrics-dump=path} writing the metrics to the given file periodically, which
+     *             requires metrics to be enabled with {@code -Dlibrary.metrics=true}
      */
     public static void main(String[] args) {
-        LibraryBrowser browser = new LibraryBrowser();
-        browser.run();
+        LoadMode loadMode = LoadMode.STANDARD;
+        StorageMode storageMode = StorageMode.OBJECTS;
+        Path snapshotFile = null;
+        Path journalDirectory = null;
+        InetSocketAddress serverAddress = null;
+        Path serverFiles = null;
+        boolean batch = false;
+        Path batchScript = null;
+        Path metricsFile = null;
+
+        for (String arg : args) {
+            if (arg.startsWith(LOAD_MODE_OPTION)) {
+                try {
+                    loadMode = LoadMode.valueOf(arg.substring(LOAD_MODE_OPTION.length()).toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.err.println("ERROR: Unknown load mode: " + arg);
+                    return;
+                }
+            } else if (arg.startsWith(STORAGE_OPTION)) {
+                try {
+                    storageMode = StorageMode.valueOf(arg.substring(STORAGE_OPTION.length()).toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.err.println("ERROR: Unknown storage mode: " + arg);
+                    return;
+                }
+            } else if (arg.startsWith(SNAPSHOT_OPTION)) {
+                try {
+                    snapshotFile = Paths.get(arg.substring(SNAPSHOT_OPTION.length()));
+                } catch (InvalidPathException e) {
+                    System.err.println("ERROR: Invalid snapshot path: " + arg);
+                    return;
+                }
+            } else if (arg.startsWith(JOURNAL_OPTION)) {
+                try {
+                    journalDirectory = Paths.get(arg.substring(JOURNAL_OPTION.length()));
+                } catch (InvalidPathException e) {
+                    System.err.println("ERROR: Invalid journal path: " + arg);
+                    return;
+                }
+            } else if (arg.startsWith(SERVER_OPTION)) {
+                serverAddress = parseServerAddress(arg.substring(SERVER_OPTION.length()));
+                if (serverAddress == null) {
+                    System.err.println("ERROR: Invalid server address: " + arg);
+                    return;
+                }
+            } else if (arg.startsWith(SERVER_FILES_OPTION)) {
+                try {
+                    serverFiles = Paths.get(arg.substring(SERVER_FILES_OPTION.length()));
+                } catch (InvalidPathException e) {
+                    System.err.println("ERROR: Invalid server files path: " + arg);
+                    return;
+                }
+            } else if (arg.startsWith(METRICS_DUMP_OPTION)) {
+                if (!LibraryMetrics.ENABLED) {
+                    System.err.println("ERROR: Metrics are disabled, start with -D"
+                            + LibraryMetrics.ENABLED_PROPERTY + "=true to dump them.");
+                    return;
+                }
+                try {
+                    metricsFile = Paths.get(arg.substring(METRICS_DUMP_OPTION.length()));
+                } catch (InvalidPathException e) {
+                    System.err.println("ERROR: Invalid metrics dump path: " + arg);
+                    return;
+                }
+            } else if (arg.equals(BATCH_OPTION)) {
+                batch = true;
+            } else if (arg.startsWith(BATCH_SCRIPT_OPTION)) {
+                batch = true;
+                try {
+                    batchScript = Paths.get(arg.substring(BATCH_SCRIPT_OPTION.length()));
+                } catch (InvalidPathException e) {
+                    System.err.println("ERROR: Invalid batch script path: " + arg);
+                    return;
+                }
+            } else {
+                System.err.println("ERROR: Unknown option: " + arg);
+                return;
+            }
+        }
+
+        if (batch && serverAddress != null) {
+            System.err.println("ERROR: Batch mode and server mode cannot be combined.");
+            return;
+        }
+        if (serverFiles != null && serverAddress == null) {
+            System.err.println("ERROR: Server files can only be given in server mode.");
+            return;
+        }
+
+        LibraryData data = new LibraryData(storageMode);
+        data.setLoadMode(loadMode);
+        if (metricsFile != null) {
+            LibraryMetrics.startDump(metricsFile, LibraryMetrics.DEFAULT_DUMP_PERIOD, data.getQueryCache());
+        }
+        // the snapshot is loaded before the journal is opened, so its books are not journaled again on every start
+        if (snapshotFile != null) {
+            data.loadSnapshot(snapshotFile);
+        }
+        if (journalDirectory != null && !data.openJournal(journalDirectory)) {
+            return;
+        }
+
+        if (serverAddress != null) {
+            serve(data, serverAddress, serverFiles);
+        } else if (batch) {
+            runBatch(data, batchScript);
+        } else {
+            LibraryBrowser browser = new LibraryBrowser(data);
+            browser.run();
+        }
+        data.closeJournal();
+    }
+
+    /**
+     * Serve library commands to network clients until the program is terminated.
+     * @param data library shared by all clients
+     * @param address address to listen on
+     * @param fileDirectory directory clients may add, save and load files in, null if they may not use files
+     */
+    private static void serve(LibraryData data, InetSocketAddress address, Path fileDirectory) {
+        int workerCount = Math.max(Runtime.getRuntime().availableProcessors(), MIN_SERVER_WORKERS);
+        try (LibraryServer server = new LibraryServer(data, address, workerCount, fileDirectory)) {
+            System.out.println("Serving library commands on: " + server.getAddress());
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.run();
+        } catch (IOException e) {
+            System.err.println("ERROR: Library server failed: " + e);
+        }
+    }
+
+    /**
+     * Run a command script without prompts.
+     * @param data library the commands are executed on
+     * @param script path of the script or null to read the commands from standard input
+     */
+    private static void runBatch(LibraryData data, Path script) {
+        LibraryBrowser browser = new LibraryBrowser(data);
+        if (script == null) {
+            browser.runBatch(new InputStreamReader(System.in, Charset.defaultCharset()));
+            return;
+        }
+
+        try (Reader reader = Files.newBufferedReader(script, Charset.defaultCharset())) {
+            browser.runBatch(reader);
+        } catch (IOException | SecurityException e) {
+            System.err.println("ERROR: Reading command script failed: " + e);
+        }
+    }
+
+    /**
+     * Parse a server address of the form [host:]port.
+     * @param value address to be parsed
+     * @return the address or null if it is invalid
+     */
+    private static InetSocketAddress parseServerAddress(String value) {
+        int separator = value.lastIndexOf(':');
+        try {
+            int port = Integer.parseInt(value.substring(separator + 1));
+            if (port < 0 || port > 0xFFFF) {
+                return null;
+            }
+            if (separator < 0) {
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+            }
+            return new InetSocketAddress(value.substring(0, separator), port);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 }
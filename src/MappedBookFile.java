@@ -0,0 +1,364 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Book data file that is memory-mapped instead of being read into memory.
+ *
+ * The file is mapped in regions of at most MAX_REGION_SIZE bytes, each ending on a
+ * line boundary, so files larger than 2 GB can be handled and no row spans two regions.
+ * Opening the file only scans the mapped bytes for line breaks, a row is decoded
+ * into a BookEntry when it is materialised.
+ *
+ * Lines are split and decoded just like the standard loader reads them: a line ends at
+ * '\n', '\r' or "\r\n", and a file that is not valid UTF-8 cannot be opened. Rows only
+ * holding ASCII characters are parsed straight from the mapped bytes, without copying
+ * them or creating a String for the whole row.
+ */
+public class MappedBookFile {
+
+    /** Largest number of bytes mapped by a single region. */
+    public static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+    /** Initial capacity of the line start array. */
+    private static final int INITIAL_LINE_CAPACITY = 1 << 10;
+
+    /** Mapped regions of the file in file order. */
+    private final List<MappedByteBuffer> regions;
+
+    /** File offset of the first byte of each region. */
+    private final long[] regionStarts;
+
+    /**
+     * File offset of the first byte of each line, followed by the file size.
+     * Index 0 is the header line.
+     */
+    private final long[] lineStarts;
+
+    /** Number of lines including the header line. */
+    private final int lineCount;
+
+    /** Lines holding characters outside of ASCII, which have to be decoded before parsing. */
+    private final BitSet nonAsciiLines;
+
+    /** Reused view of the ASCII row being materialised. */
+    private final AsciiRow asciiRow;
+
+    /** Reused buffer for the bytes of the non-ASCII row being materialised. */
+    private byte[] rowBuffer;
+
+    /**
+     * Create a mapped book data file from its scanned regions.
+     * @param regions mapped regions in file order
+     * @param regionStarts file offset of each region
+     * @param lineStarts file offset of each line followed by the file size
+     * @param lineCount number of lines including the header line
+     * @param nonAsciiLines lines holding characters outside of ASCII
+     */
+    private MappedBookFile(List<MappedByteBuffer> regions, long[] regionStarts, long[] lineStarts, int lineCount,
+                           BitSet nonAsciiLines) {
+        this.regions = regions;
+        this.regionStarts = regionStarts;
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+        this.nonAsciiLines = nonAsciiLines;
+        this.asciiRow = new AsciiRow();
+        this.rowBuffer = new byte[256];
+    }
+
+    /**
+     * Map the given book data file using regions of MAX_REGION_SIZE.
+     * @param fileName file path with book data
+     * @return mapped book data file
+     * @throws IOException if the file could not be mapped
+     * @throws NullPointerException if the given file name is null
+     */
+    public static MappedBookFile open(Path fileName) throws IOException {
+        return open(fileName, MAX_REGION_SIZE);
+    }
+
+    /**
+     * Map the given book data file using regions of at most the given size.
+     * @param fileName file path with book data
+     * @param regionSize largest number of bytes mapped by a single region
+     * @return mapped book data file
+     * @throws IOException if the file could not be mapped, holds a line longer than a region or is not valid UTF-8
+     * @throws NullPointerException if the given file name is null
+     * @throws IllegalArgumentException if the region size is not between 1 and MAX_REGION_SIZE
+     */
+    public static MappedBookFile open(Path fileName, long regionSize) throws IOException {
+        Objects.requireNonNull(fileName, "Given filename must not be null.");
+        if (regionSize < 1 || regionSize > MAX_REGION_SIZE) {
+            throw new IllegalArgumentException("Region size must be between 1 and " + MAX_REGION_SIZE);
+        }
+
+        List<MappedByteBuffer> regions = new ArrayList<>();
+        long[] regionStarts = new long[4];
+        long[] lineStarts = new long[INITIAL_LINE_CAPACITY];
+        int lineCount = 0;
+        BitSet nonAsciiLines = new BitSet();
+
+        try (FileChannel channel = FileChannel.open(fileName, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+
+            while (position < size) {
+                int length = (int) Math.min(size - position, regionSize);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                // cut the region after its last line break so no line spans two regions
+                int regionEnd = length;
+                if (position + length < size) {
+                    regionEnd = lastLineEnd(region, length);
+                    if (regionEnd == 0) {
+                        throw new IOException("Line longer than " + regionSize + " bytes at offset " + position);
+                    }
+                }
+
+                if (regions.size() == regionStarts.length) {
+                    regionStarts = Arrays.copyOf(regionStarts, regionStarts.length * 2);
+                }
+                regionStarts[regions.size()] = position;
+                regions.add(region);
+
+                boolean lineStart = true;
+                for (int i = 0; i < regionEnd; i++) {
+                    if (lineStart) {
+                        if (lineCount + 1 >= lineStarts.length) {
+                            lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+                        }
+                        lineStarts[lineCount++] = position + i;
+                    }
+
+                    byte b = region.get(i);
+                    if (b == '\n') {
+                        lineStart = true;
+                    } else if (b == '\r') {
+                        // a '\r' followed by '\n' ends the line together with it
+                        lineStart = i + 1 == regionEnd || region.get(i + 1) != '\n';
+                    } else {
+                        lineStart = false;
+                        if (b < 0) {
+                            nonAsciiLines.set(lineCount - 1);
+                            i += utf8SequenceLength(region, i, regionEnd) - 1;
+                        }
+                    }
+                }
+
+                position += regionEnd;
+            }
+
+            lineStarts[lineCount] = size;
+        }
+
+        return new MappedBookFile(regions, regionStarts, lineStarts, lineCount, nonAsciiLines);
+    }
+
+    /**
+     * Find the end of the last complete line of a region. A '\r' in the last mapped byte
+     * does not end a line, as the next region might start with its '\n'.
+     * @param region mapped region
+     * @param length number of mapped bytes
+     * @return index after the last line break or 0 if there is none
+     */
+    private static int lastLineEnd(MappedByteBuffer region, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            byte b = region.get(i);
+            if (b == '\n' || (b == '\r' && i < length - 1)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Check the UTF-8 sequence starting with a non-ASCII byte, rejecting everything
+     * the UTF-8 decoder of the standard loader rejects: stray continuation bytes,
+     * overlong forms, surrogates and code points above U+10FFFF.
+     * @param region mapped region
+     * @param start index of the first byte of the sequence
+     * @param end index after the last byte of the region that may be part of the sequence
+     * @return number of bytes of the sequence
+     * @throws MalformedInputException if the bytes are not a valid UTF-8 sequence
+     */
+    private static int utf8SequenceLength(MappedByteBuffer region, int start, int end)
+            throws MalformedInputException {
+        int lead = region.get(start) & 0xFF;
+        int length;
+        int min = 0x80;
+        int max = 0xBF;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            length = 2;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            length = 3;
+            if (lead == 0xE0) {
+                min = 0xA0;
+            } else if (lead == 0xED) {
+                max = 0x9F;
+            }
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            length = 4;
+            if (lead == 0xF0) {
+                min = 0x90;
+            } else if (lead == 0xF4) {
+                max = 0x8F;
+            }
+        } else {
+            throw new MalformedInputException(1);
+        }
+
+        if (start + length > end) {
+            throw new MalformedInputException(1);
+        }
+        // only the second byte has a narrower range, the others are plain continuation bytes
+        int second = region.get(start + 1) & 0xFF;
+        if (second < min || second > max) {
+            throw new MalformedInputException(1);
+        }
+        for (int i = 2; i < length; i++) {
+            int next = region.get(start + i) & 0xFF;
+            if (next < 0x80 || next > 0xBF) {
+                throw new MalformedInputException(1);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Number of book rows in the file, the header line is not counted.
+     * @return number of book rows
+     */
+    public int rowCount() {
+        return Math.max(lineCount - 1, 0);
+    }
+
+    /**
+     * Decode the given row into a book entry.
+     *
+     * Rows share an internal view and decode buffer, so a mapped file must not be
+     * materialised from several threads at once.
+     *
+     * @param row index of the row, 0 is the first row after the header line
+     * @return parsed book entry of the row
+     * @throws IndexOutOfBoundsException if the row does not exist
+     * @throws IllegalArgumentException if the row is not a valid book entry
+     */
+    public BookEntry materialize(int row) {
+        return materialize(row, null);
+    }
+
+    /**
+     * Decode the given row into a book entry, taking the author names from a dictionary.
+     * @param row index of the row, 0 is the first row after the header line
+     * @param authorDictionary dictionary providing the canonical author names, or null to create new ones
+     * @return parsed book entry of the row
+     * @throws IndexOutOfBoundsException if the row does not exist
+     * @throws IllegalArgumentException if the row is not a valid book entry
+     */
+    public BookEntry materialize(int row, AuthorDictionary authorDictionary) {
+        Objects.checkIndex(row, rowCount());
+
+        int line = row + 1;
+        long start = lineStarts[line];
+        long end = lineStarts[line + 1];
+
+        int regionIdx = regionOf(start);
+        MappedByteBuffer region = regions.get(regionIdx);
+        int offset = (int) (start - regionStarts[regionIdx]);
+        int length = (int) (end - start);
+
+        // strip the line break, either \n, \r\n or \r
+        if (length > 0 && region.get(offset + length - 1) == '\n') {
+            length--;
+            if (length > 0 && region.get(offset + length - 1) == '\r') {
+                length--;
+            }
+        } else if (length > 0 && region.get(offset + length - 1) == '\r') {
+            length--;
+        }
+
+        if (!nonAsciiLines.get(line)) {
+            asciiRow.set(region, offset, length);
+            return LibraryFileLoader.parseRow(asciiRow, authorDictionary);
+        }
+
+        if (rowBuffer.length < length) {
+            rowBuffer = new byte[Math.max(length, rowBuffer.length * 2)];
+        }
+        region.get(offset, rowBuffer, 0, length);
+
+        return LibraryFileLoader.parseRow(new String(rowBuffer, 0, length, StandardCharsets.UTF_8),
+                authorDictionary);
+    }
+
+    /**
+     * Find the region holding the given file offset.
+     * @param offset file offset of a line start
+     * @return index of the region holding the offset
+     */
+    private int regionOf(long offset) {
+        int idx = Arrays.binarySearch(regionStarts, 0, regions.size(), offset);
+        return idx >= 0 ? idx : -idx - 2;
+    }
+
+    /**
+     * View of a mapped row only holding ASCII characters, every byte being one character.
+     * Only the subsequences taken for the fields become Strings.
+     */
+    private static final class AsciiRow implements CharSequence {
+
+        /** Region holding the row. */
+        private MappedByteBuffer region;
+
+        /** Index of the first byte of the row within the region. */
+        private int offset;
+
+        /** Number of bytes of the row without its line break. */
+        private int length;
+
+        /**
+         * Point the view at another row.
+         * @param region region holding the row
+         * @param offset index of the first byte of the row within the region
+         * @param length number of bytes of the row without its line break
+         */
+        void set(MappedByteBuffer region, int offset, int length) {
+            this.region = region;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Objects.checkIndex(index, length);
+            return (char) region.get(offset + index);
+        }
+
+        @Override
+        public String subSequence(int start, int end) {
+            Objects.checkFromToIndex(start, end, length);
+            byte[] bytes = new byte[end - start];
+            region.get(offset + start, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length);
+        }
+    }
+}
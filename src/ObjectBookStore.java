@@ -0,0 +1,137 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Book store keeping every book as a BookEntry object.
+ *
+ * Slots are only ever appended to the book array and removed books are only marked,
+ * the array itself is replaced on compaction. A list returned by asList keeps the array
+ * and a copy of the removed marks, so it never changes, whatever happens to the store
+ * afterwards.
+ */
+public class ObjectBookStore implements BookStore {
+
+    /** Number of books the array can hold before it first has to grow. */
+    private static final int INITIAL_CAPACITY = 1 << 4;
+
+    /** Books by slot, including removed ones. */
+    private BookEntry[] books;
+
+    /** Slots of removed books. */
+    private final BitSet removed;
+
+    /** Number of slots in use. */
+    private int size;
+
+    /** Create a new and empty store. */
+    public ObjectBookStore() {
+        books = new BookEntry[INITIAL_CAPACITY];
+        removed = new BitSet();
+        size = 0;
+    }
+
+    @Override
+    public int add(BookEntry entry, int[] authorIds) {
+        if (size == books.length) {
+            books = Arrays.copyOf(books, size * 2);
+        }
+        books[size] = entry;
+        return size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isRemoved(int slot) {
+        Objects.checkIndex(slot, size);
+        return removed.get(slot);
+    }
+
+    @Override
+    public BookEntry get(int slot) {
+        return isRemoved(slot) ? null : books[slot];
+    }
+
+    @Override
+    public String getTitle(int slot) {
+        Objects.checkIndex(slot, size);
+        return books[slot].getTitle();
+    }
+
+    @Override
+    public String[] getAuthors(int slot) {
+        Objects.checkIndex(slot, size);
+        return books[slot].getAuthors();
+    }
+
+    @Override
+    public void remove(int slot) {
+        Objects.checkIndex(slot, size);
+        removed.set(slot);
+    }
+
+    @Override
+    public int[] compact() {
+        int[] newSlots = new int[size];
+        BookEntry[] kept = new BookEntry[Math.max(books.length, INITIAL_CAPACITY)];
+        int keptCount = 0;
+
+        for (int slot = 0; slot < size; slot++) {
+            if (removed.get(slot)) {
+                newSlots[slot] = -1;
+            } else {
+                newSlots[slot] = keptCount;
+                kept[keptCount++] = books[slot];
+            }
+        }
+
+        books = kept;
+        removed.clear();
+        size = keptCount;
+        return newSlots;
+    }
+
+    @Override
+    public List<BookEntry> asList() {
+        BookView view = new BookView(books, size);
+        return removed.isEmpty() ? view : new LiveBookList(view, (BitSet) removed.clone());
+    }
+
+    /** Read-only list of the books of the slots in use when it was created. */
+    private static class BookView extends AbstractList<BookEntry> implements RandomAccess {
+
+        /** Book array of the store when the view was created. */
+        private final BookEntry[] books;
+
+        /** Number of slots in use when the view was created. */
+        private final int size;
+
+        /**
+         * Create a view of the first slots of a book array.
+         * @param books book array of the store
+         * @param size number of slots in use
+         */
+        BookView(BookEntry[] books, int size) {
+            this.books = books;
+            this.size = size;
+        }
+
+        @Override
+        public BookEntry get(int index) {
+            Objects.checkIndex(index, size);
+            return books[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Bounded buffer collecting the output of commands.
+ *
+ * The buffer never grows beyond its capacity. If a target stream has been set, a full
+ * buffer is written to the target and then filled again, otherwise output beyond the
+ * capacity is discarded and the buffer is marked as truncated. A buffer can be reset and
+ * reused for any number of command executions.
+ *
+ * The buffer is only filled again once the target has returned from writing it, so a
+ * target waiting until its output has been consumed slows the writer down to its pace.
+ */
+public class OutputBuffer extends OutputStream {
+
+    /** Buffered bytes, only the first size bytes are valid. */
+    private final byte[] bytes;
+
+    /** Number of buffered bytes. */
+    private int size;
+
+    /** Stream a full buffer is written to, null if output beyond the capacity is discarded. */
+    private OutputStream target;
+
+    /** True if output has been discarded since the last reset. */
+    private boolean truncated;
+
+    /**
+     * Create an empty buffer without a target.
+     * @param capacity most bytes held by the buffer
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public OutputBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        bytes = new byte[capacity];
+        size = 0;
+        target = null;
+        truncated = false;
+    }
+
+    /**
+     * Set the stream a full buffer is written to.
+     * @param target stream receiving the output or null to discard output beyond the capacity
+     */
+    public void setTarget(OutputStream target) {
+        this.target = target;
+    }
+
+    /** Discard all buffered output and the target, so the buffer can be reused. */
+    public void reset() {
+        size = 0;
+        target = null;
+        truncated = false;
+    }
+
+    /**
+     * @return number of bytes currently buffered
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if output has been discarded since the last reset
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return a copy of the bytes currently buffered
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    /**
+     * @return the bytes currently buffered decoded with the default charset
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, 0, size, Charset.defaultCharset());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (size == bytes.length && !drain()) {
+            truncated = true;
+            return;
+        }
+        bytes[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (size == bytes.length && !drain()) {
+                truncated = true;
+                return;
+            }
+            int count = Math.min(len, bytes.length - size);
+            System.arraycopy(b, off, bytes, size, count);
+            size += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Write all buffered output to the target, if one has been set.
+     * @throws IOException if writing to the target failed
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (target != null) {
+            target.flush();
+        }
+    }
+
+    /**
+     * Write all buffered output to the target and empty the buffer.
+     * @return true if the buffer has been emptied, false if there is no target
+     * @throws IOException if writing to the target failed
+     */
+    private boolean drain() throws IOException {
+        if (target == null) {
+            return false;
+        }
+        if (size > 0) {
+            target.write(bytes, 0, size);
+            size = 0;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,145 @@
+import java.io.PrintStream;
+import java.util.Objects;
+
+/**
+ * Buffered sink for command output.
+ *
+ * Rendered lines are collected into blocks of about BLOCK_SIZE characters, and every
+ * block is handed to the underlying stream in a single write. Printing line by line
+ * would take the stream's lock and usually flush it for every single line. The bytes
+ * written are exactly those that printing every line on its own would produce.
+ */
+public class OutputSink implements Appendable {
+
+    /** Number of buffered characters after which a block is written. */
+    public static final int BLOCK_SIZE = 1 << 16;
+
+    /** Line separator appended by println, the same one used by PrintStream. */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /** Stream all blocks are written to. */
+    private final PrintStream stream;
+
+    /** Characters not yet written to the stream. */
+    private final StringBuilder block;
+
+    /** Copy of everything written so far while recording, null if not recording. */
+    private StringBuilder recording;
+
+    /** Number of characters after which recording is given up. */
+    private int recordingLimit;
+
+    /**
+     * Create a sink writing to the given stream.
+     * @param stream stream all output is written to
+     * @throws NullPointerException if the given stream is null
+     */
+    public OutputSink(PrintStream stream) {
+        this.stream = Objects.requireNonNull(stream, "Given stream must not be null.");
+        this.block = new StringBuilder(BLOCK_SIZE + BLOCK_SIZE / 4);
+        this.recording = null;
+        this.recordingLimit = 0;
+    }
+
+    /**
+     * Keep a copy of everything written from now on, as long as it does not grow beyond the limit.
+     * @param limit number of characters after which recording is given up
+     */
+    public void record(int limit) {
+        recording = new StringBuilder();
+        recordingLimit = limit;
+    }
+
+    /**
+     * Everything written since recording started. Only complete once the sink has been flushed.
+     * @return the recorded output or null if not recording or the limit was exceeded
+     */
+    public String recorded() {
+        return recording == null ? null : recording.toString();
+    }
+
+    /**
+     * Append text without a line separator.
+     * @param text text to be written
+     */
+    public void print(String text) {
+        block.append(text);
+        writeIfFull();
+    }
+
+    /**
+     * Append a line followed by the line separator.
+     * @param line line to be written
+     */
+    public void println(String line) {
+        block.append(line).append(LINE_SEPARATOR);
+        writeIfFull();
+    }
+
+    /**
+     * Append a character sequence without a line separator.
+     * @param csq character sequence to be written
+     * @return this sink
+     */
+    @Override
+    public OutputSink append(CharSequence csq) {
+        block.append(csq);
+        writeIfFull();
+        return this;
+    }
+
+    /**
+     * Append part of a character sequence without a line separator.
+     * @param csq character sequence to be written
+     * @param start first character to be written
+     * @param end index after the last character to be written
+     * @return this sink
+     */
+    @Override
+    public OutputSink append(CharSequence csq, int start, int end) {
+        block.append(csq, start, end);
+        writeIfFull();
+        return this;
+    }
+
+    /**
+     * Append a single character.
+     * @param c character to be written
+     * @return this sink
+     */
+    @Override
+    public OutputSink append(char c) {
+        block.append(c);
+        writeIfFull();
+        return this;
+    }
+
+    /** Write all buffered output and flush the underlying stream. */
+    public void flush() {
+        writeBlock();
+        stream.flush();
+    }
+
+    /** Write the buffered block once it reached BLOCK_SIZE. */
+    private void writeIfFull() {
+        if (block.length() >= BLOCK_SIZE) {
+            writeBlock();
+        }
+    }
+
+    /** Write the buffered block to the stream in one call. */
+    private void writeBlock() {
+        if (block.length() > 0) {
+            String text = block.toString();
+            if (recording != null) {
+                if (recording.length() + text.length() > recordingLimit) {
+                    recording = null;
+                } else {
+                    recording.append(text);
+                }
+            }
+            stream.print(text);
+            block.setLength(0);
+        }
+    }
+}
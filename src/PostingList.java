@@ -0,0 +1,214 @@
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Growable, sorted list of book slots as used by the library indexes.
+ *
+ * Slots are always appended in increasing order. Slots of removed books stay
+ * in the list until the library is compacted and the list is remapped.
+ *
+ * Lists can be intersected, united and subtracted in a single merge pass. While
+ * merging, the longer list is skipped through in steps of about the square root of
+ * its size, so intersecting a rare and a very common slot list only looks at a
+ * small part of the common one.
+ */
+public class PostingList {
+
+    /** Initial capacity of a new posting list. */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /** Sorted slots, only the first size elements are in use. */
+    private int[] slots;
+
+    /** Number of slots in this list. */
+    private int size;
+
+    /** Create a new and empty posting list. */
+    public PostingList() {
+        slots = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Append a slot to this list. Appending the last slot again has no effect,
+     * which happens when a book lists the same key twice.
+     * @param slot book slot, not smaller than any slot already in the list
+     * @throws IllegalArgumentException if the slot is smaller than the last slot
+     */
+    public void add(int slot) {
+        if (size > 0) {
+            if (slots[size - 1] == slot) {
+                return;
+            } else if (slots[size - 1] > slot) {
+                throw new IllegalArgumentException("Slots must be added in increasing order: " + slot);
+            }
+        }
+
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        slots[size++] = slot;
+    }
+
+    /**
+     * @return number of slots in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if this list holds no slots
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param idx position within this list
+     * @return slot at the given position
+     * @throws IndexOutOfBoundsException if the position is not within this list
+     */
+    public int get(int idx) {
+        Objects.checkIndex(idx, size);
+        return slots[idx];
+    }
+
+    /**
+     * Slots found in both lists.
+     * @param first sorted slot list
+     * @param second sorted slot list
+     * @return new list of the slots in both lists
+     */
+    public static PostingList intersect(PostingList first, PostingList second) {
+        PostingList shorter = first.size <= second.size ? first : second;
+        PostingList longer = shorter == first ? second : first;
+        PostingList result = new PostingList();
+
+        int skip = skipDistance(longer);
+        int pos = 0;
+        for (int i = 0; i < shorter.size && pos < longer.size; i++) {
+            int slot = shorter.slots[i];
+            pos = longer.seek(pos, slot, skip);
+            if (pos < longer.size && longer.slots[pos] == slot) {
+                result.add(slot);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Slots found in any of the two lists.
+     * @param first sorted slot list
+     * @param second sorted slot list
+     * @return new list of the slots in either list
+     */
+    public static PostingList union(PostingList first, PostingList second) {
+        PostingList result = new PostingList();
+        result.slots = new int[Math.max(first.size + second.size, INITIAL_CAPACITY)];
+
+        int i = 0;
+        int j = 0;
+        while (i < first.size && j < second.size) {
+            int a = first.slots[i];
+            int b = second.slots[j];
+            result.slots[result.size++] = Math.min(a, b);
+            if (a <= b) {
+                i++;
+            }
+            if (b <= a) {
+                j++;
+            }
+        }
+        while (i < first.size) {
+            result.slots[result.size++] = first.slots[i++];
+        }
+        while (j < second.size) {
+            result.slots[result.size++] = second.slots[j++];
+        }
+        return result;
+    }
+
+    /**
+     * Slots of the first list not found in the second one.
+     * @param first sorted slot list
+     * @param second sorted slot list of the slots to be left out
+     * @return new list of the slots only in the first list
+     */
+    public static PostingList difference(PostingList first, PostingList second) {
+        PostingList result = new PostingList();
+
+        int skip = skipDistance(second);
+        int pos = 0;
+        for (int i = 0; i < first.size; i++) {
+            int slot = first.slots[i];
+            pos = second.seek(pos, slot, skip);
+            if (pos == second.size || second.slots[pos] != slot) {
+                result.add(slot);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * All slots from 0 up to the given end.
+     * @param end slot after the last one in the list
+     * @return new list of all slots below end
+     */
+    public static PostingList range(int end) {
+        PostingList result = new PostingList();
+        result.slots = new int[Math.max(end, INITIAL_CAPACITY)];
+        for (int slot = 0; slot < end; slot++) {
+            result.slots[slot] = slot;
+        }
+        result.size = Math.max(end, 0);
+        return result;
+    }
+
+    /**
+     * Find the first position at or after from holding a slot not smaller than the target,
+     * skipping ahead in steps while the slot at the end of the step is still too small.
+     * @param from first position to look at
+     * @param target slot looked for
+     * @param skip number of positions skipped in one step
+     * @return position of the first slot not smaller than the target, or size if there is none
+     */
+    private int seek(int from, int target, int skip) {
+        int pos = from;
+        while (pos + skip < size && slots[pos + skip] < target) {
+            pos += skip;
+        }
+        while (pos < size && slots[pos] < target) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @param list list to be skipped through
+     * @return number of positions skipped in one step, about the square root of the size
+     */
+    private static int skipDistance(PostingList list) {
+        return Math.max(1, (int) Math.sqrt(list.size));
+    }
+
+    /**
+     * Translate all slots after the library has been compacted.
+     * Slots mapped to -1 belong to removed books and are dropped.
+     * @param newSlots new slot for every old slot, or -1 if it was removed
+     */
+    public void remap(int[] newSlots) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = newSlots[slots[i]];
+            if (slot != -1) {
+                slots[kept++] = slot;
+            }
+        }
+        size = kept;
+
+        if (size < slots.length / 4 && slots.length > INITIAL_CAPACITY) {
+            slots = Arrays.copyOf(slots, Math.max(size, INITIAL_CAPACITY));
+        }
+    }
+}
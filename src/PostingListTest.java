@@ -0,0 +1,112 @@
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the posting list merges the title search and boolean queries are built on,
+ * compared against the same operations on bit sets.
+ */
+public class PostingListTest {
+
+    /**
+     * Create a posting list of random slots.
+     * @param random source of the slots
+     * @param bound slot after the largest possible one
+     * @param density chance of every slot below the bound to be in the list
+     * @return new posting list
+     */
+    private static PostingList randomList(Random random, int bound, double density) {
+        PostingList list = new PostingList();
+        for (int slot = 0; slot < bound; slot++) {
+            if (random.nextDouble() < density) {
+                list.add(slot);
+            }
+        }
+        return list;
+    }
+
+    private static BitSet toBitSet(PostingList list) {
+        BitSet slots = new BitSet();
+        for (int i = 0; i < list.size(); i++) {
+            slots.set(list.get(i));
+        }
+        return slots;
+    }
+
+    private static void assertSlots(String message, BitSet expected, PostingList actual) {
+        for (int i = 1; i < actual.size(); i++) {
+            assertTrue(message + " must be sorted without duplicates", actual.get(i - 1) < actual.get(i));
+        }
+        assertEquals(message, expected, toBitSet(actual));
+    }
+
+    @Test
+    public void testMergesMatchBitSets() {
+        Random random = new Random(6);
+        double[] densities = { 0, 0.001, 0.01, 0.1, 0.5, 1 };
+        for (double firstDensity : densities) {
+            for (double secondDensity : densities) {
+                PostingList first = randomList(random, 5000, firstDensity);
+                PostingList second = randomList(random, 5000, secondDensity);
+                String lists = "densities " + firstDensity + " and " + secondDensity;
+
+                BitSet both = toBitSet(first);
+                both.and(toBitSet(second));
+                assertSlots("Intersection of " + lists, both, PostingList.intersect(first, second));
+                assertSlots("Intersection of " + lists, both, PostingList.intersect(second, first));
+
+                BitSet either = toBitSet(first);
+                either.or(toBitSet(second));
+                assertSlots("Union of " + lists, either, PostingList.union(first, second));
+
+                BitSet only = toBitSet(first);
+                only.andNot(toBitSet(second));
+                assertSlots("Difference of " + lists, only, PostingList.difference(first, second));
+            }
+        }
+    }
+
+    @Test
+    public void testRange() {
+        BitSet expected = new BitSet();
+        expected.set(0, 100);
+        assertSlots("Range", expected, PostingList.range(100));
+        assertTrue(PostingList.range(0).isEmpty());
+    }
+
+    @Test
+    public void testAddKeepsOrder() {
+        PostingList list = new PostingList();
+        list.add(3);
+        list.add(3);
+        list.add(7);
+
+        assertEquals(2, list.size());
+        assertEquals(7, list.get(1));
+        assertThrows(IllegalArgumentException.class, () -> list.add(5));
+    }
+
+    @Test
+    public void testRemapDropsRemovedSlots() {
+        PostingList list = new PostingList();
+        for (int slot = 0; slot < 100; slot += 2) {
+            list.add(slot);
+        }
+
+        // every slot divisible by four is removed, the others move to half their slot
+        int[] newSlots = new int[100];
+        for (int slot = 0; slot < 100; slot++) {
+            newSlots[slot] = slot % 4 == 0 ? -1 : slot / 2;
+        }
+        list.remap(newSlots);
+
+        BitSet expected = new BitSet();
+        for (int slot = 2; slot < 100; slot += 4) {
+            expected.set(slot / 2);
+        }
+        assertSlots("Remapped list", expected, list);
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded cache of rendered query output, evicting the least recently used results.
+ *
+ * Every result is stored together with the library version it was rendered for and is
+ * only returned while the library still has that version, so any ADD or REMOVE makes all
+ * earlier results invalid. Results are kept until the estimated size of all results
+ * exceeds the byte budget.
+ */
+public class QueryCache {
+
+    /** Default number of bytes all cached results may take. */
+    public static final long DEFAULT_BUDGET = 1L << 24;
+
+    /** Estimated number of bytes taken by a cached result besides its characters. */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /** Cached results by query, in the order they were last used. */
+    private final LinkedHashMap<String, Result> results;
+
+    /** Number of bytes all cached results may take. */
+    private final long budget;
+
+    /** Estimated number of bytes taken by all cached results. */
+    private long size;
+
+    /** Number of lookups answered from the cache. */
+    private long hits;
+
+    /** Number of lookups not answered from the cache. */
+    private long misses;
+
+    /** Number of results evicted to stay within the budget. */
+    private long evictions;
+
+    /**
+     * Create an empty cache.
+     * @param budget number of bytes all cached results may take
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public QueryCache(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Budget must not be negative: " + budget);
+        }
+        this.budget = budget;
+        results = new LinkedHashMap<>(16, 0.75f, true);
+        size = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Look up the result of a query.
+     * @param query command type and argument of the query
+     * @param version current version of the library
+     * @return the cached result or null if there is no result for this version
+     * @throws NullPointerException if the given query is null
+     */
+    public synchronized String get(String query, long version) {
+        Objects.requireNonNull(query, "Given query must not be null.");
+
+        Result result = results.get(query);
+        if (result != null && result.version == version) {
+            hits++;
+            return result.output;
+        }
+
+        if (result != null) {
+            // rendered for an earlier version, it will never be valid again
+            results.remove(query);
+            size -= result.size;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Cache the result of a query, evicting the least recently used results if needed.
+     * Results larger than the whole budget are not cached.
+     * @param query command type and argument of the query
+     * @param version version of the library the result was rendered for
+     * @param output rendered result
+     * @throws NullPointerException if the given query or output is null
+     */
+    public synchronized void put(String query, long version, String output) {
+        Objects.requireNonNull(query, "Given query must not be null.");
+        Objects.requireNonNull(output, "Given output must not be null.");
+
+        long resultSize = estimateSize(query, output);
+        if (resultSize > budget) {
+            return;
+        }
+
+        Result previous = results.put(query, new Result(version, output, resultSize));
+        if (previous != null) {
+            size -= previous.size;
+        }
+        size += resultSize;
+
+        Iterator<Result> eldest = results.values().iterator();
+        while (size > budget) {
+            size -= eldest.next().size;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * @return number of characters of the largest result that can be cached
+     */
+    public int maxLength() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, (budget - ENTRY_OVERHEAD) / 2));
+    }
+
+    /** Remove all cached results, the counters are kept. */
+    public synchronized void clear() {
+        results.clear();
+        size = 0;
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups not answered from the cache
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of results evicted to stay within the budget
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of cached results
+     */
+    public synchronized int getEntryCount() {
+        return results.size();
+    }
+
+    /**
+     * @return estimated number of bytes taken by all cached results
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of bytes all cached results may take
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Estimate the number of bytes taken by a cached result, counting two bytes per character.
+     * @param query command type and argument of the query
+     * @param output rendered result
+     * @return estimated size of the result
+     */
+    private static long estimateSize(String query, String output) {
+        return ENTRY_OVERHEAD + 2L * query.length() + 2L * output.length();
+    }
+
+    /** A rendered result together with the library version it is valid for. */
+    private static class Result {
+
+        /** Version of the library the result was rendered for. */
+        private final long version;
+
+        /** Rendered result. */
+        private final String output;
+
+        /** Estimated number of bytes taken by the result. */
+        private final long size;
+
+        /**
+         * Create a cached result.
+         * @param version version of the library the result was rendered for
+         * @param output rendered result
+         * @param size estimated number of bytes taken by the result
+         */
+        Result(long version, String output, long size) {
+            this.version = version;
+            this.output = output;
+            this.size = size;
+        }
+    }
+}
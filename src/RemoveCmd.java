@@ -1,6 +1,3 @@
-import java.util.Arrays;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Objects;
 
 public class RemoveCmd extends LibraryCommand {
@@ -59,66 +56,57 @@ public class RemoveCmd extends LibraryCommand {
     /**
      * Executes the remove command, which removes either an author or title.
      * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
      * @throws NullPointerException if given data is null.
      * @throws IllegalArgumentException if given data is invalid.
      */
     @Override
-    public void execute(LibraryData data) {
+    public void execute(LibraryData data, CommandOutput output) {
         Objects.requireNonNull(data, "ERROR: CANNOT BE NULL");
+        LibraryEvents.Remove event = new LibraryEvents.Remove();
+        event.begin();
 
-        List<BookEntry> bookData = data.getBookData();
-        Iterator<BookEntry> bookIter = bookData.iterator();
-
+        int removed = 0;
         if (removerType.equals("AUTHOR")) {
-            removeAuthor(bookData, bookIter);
+            removed = removeAuthor(data, output);
         } else if (removerType.equals("TITLE")) {
-            removeTitle(bookData, bookIter);
+            removed = removeTitle(data, output);
         }
+
+        event.removeBy = removerType;
+        event.argument = removedArgument;
+        event.removed = removed;
+        event.commit();
     }
 
     /**
      * Removes any books by the author inputted.
-     * @param bookData book entries in library.
-     * @param bookIter used within iterator.
+     * @param data library the books are removed from.
+     * @param output output context of this execution.
+     * @return number of books removed.
      */
-    private void removeAuthor(List<BookEntry> bookData, Iterator<BookEntry> bookIter){
-        int booksRemoved = 0;
-
-        while (bookIter.hasNext()) {
-            BookEntry book = bookIter.next();
-            List allAuthors = Arrays.asList(book.getAuthors());
+    private int removeAuthor(LibraryData data, CommandOutput output){
+        int booksRemoved = data.removeByAuthor(removedArgument, output);
 
-            if (allAuthors.contains(removedArgument)) {
-                booksRemoved += 1;
-                bookIter.remove();
-            }
-        }
-
-        System.out.println(booksRemoved + " books removed for author: " + removedArgument);
+        output.out().println(booksRemoved + " books removed for author: " + removedArgument);
+        return booksRemoved;
     }
 
     /**
      * Removes any books by the title given.
-     * @param bookData book entries in library.
-     * @param bookIter used within iterator.
+     * @param data library the book is removed from.
+     * @param output output context of this execution.
+     * @return number of books removed.
      */
-    private void removeTitle(List<BookEntry> bookData, Iterator<BookEntry> bookIter){
-        int booksRemoved = 0;
-
-        while (bookIter.hasNext()) {
-            BookEntry book = bookIter.next();
-
-            if (removedArgument.equals(book.getTitle())) {
-                System.out.println( removedArgument + ": removed successfully.");
-                booksRemoved += 1;
-                bookIter.remove();
-                break;
-            }
-        }
+    private int removeTitle(LibraryData data, CommandOutput output){
+        BookEntry removedBook = data.removeByTitle(removedArgument, output);
 
-        if (booksRemoved == 0) {
-            System.out.println(removedArgument + ": not found.");
+        if (removedBook != null) {
+            output.out().println( removedArgument + ": removed successfully.");
+        } else {
+            output.out().println(removedArgument + ": not found.");
         }
+        return removedBook != null ? 1 : 0;
     }
 
 }
@@ -0,0 +1,76 @@
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+public class SaveCmd extends LibraryCommand {
+
+    /**
+     * Creates a save command.
+     * @param argumentInput argument input is expected to be the path of the snapshot file
+     * @throws IllegalArgumentException if given arguments are invalid
+     * @throws NullPointerException if the given argumentInput is null.
+     */
+    public SaveCmd(String argumentInput) {
+        super(CommandType.SAVE, argumentInput);
+    }
+
+    /**
+     * Creates a save command, printing parse errors to the given output context.
+     * @param argumentInput argument input is expected to be the path of the snapshot file
+     * @param output output context errors found while parsing the argument are printed to.
+     * @throws IllegalArgumentException if given arguments are invalid
+     * @throws NullPointerException if any of the given parameters are null.
+     */
+    public SaveCmd(String argumentInput, CommandOutput output) {
+        super(CommandType.SAVE, argumentInput, output);
+    }
+
+    /**
+     * Path of the snapshot file written by the save command
+     */
+    private Path snapshotPath;
+
+    /**
+     * @return path of the snapshot file written by the command
+     */
+    public Path getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    /**
+     * Checks whether a given argument is valid or not, it must be a non blank file path.
+     * @param argumentInput argument input for this command.
+     * @return true if the argument is a valid path, false otherwise.
+     * @throws NullPointerException if the given argumentInput is null.
+     */
+    @Override
+    protected boolean parseArguments(String argumentInput) {
+        Objects.requireNonNull(argumentInput, "Given argument input must not be null.");
+
+        if (argumentInput.isBlank()) {
+            return false;
+        }
+        try {
+            snapshotPath = Paths.get(argumentInput);
+            return true;
+        } catch (InvalidPathException e) {
+            getParseOutput().err().println("ERROR: Given command input is invalid: " + argumentInput);
+            return false;
+        }
+    }
+
+    /**
+     * Executes the save command. This writes all book entries to a binary snapshot file.
+     * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
+     * @throws NullPointerException if the given data is null.
+     */
+    @Override
+    public void execute(LibraryData data, CommandOutput output) {
+        Objects.requireNonNull(data, "Given data must not be null.");
+
+        data.saveSnapshot(snapshotPath, output);
+    }
+
+}
@@ -19,35 +19,69 @@ public class SearchCmd extends LibraryCommand {
     private String searchWord;
 
     /**
-     * Executes the search command, checks if a book title contains a the searchWord as a substring of title.
+     * Boolean query if more than one word or a quote is searched for, null for a single word.
+     */
+    private TitleQuery titleQuery;
+
+    /**
+     * Executes the search command, checks if a book title contains a the searchWord as a substring of title,
+     * or matches the boolean query if more than one word is searched for.
      * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
      * @throws NullPointerException if given data is null.
      * @throws IllegalArgumentException if given data is invalid.
      */
     @Override
-    public void execute(LibraryData data) {
+    public void execute(LibraryData data, CommandOutput output) {
         Objects.requireNonNull(data, "ERROR: INPUT CANNOT BE NULL");
+        LibraryEvents.Search event = new LibraryEvents.Search();
+        event.begin();
+        event.term = searchWord;
 
-        boolean searchFound = false;
+        String query = getType() + " " + searchWord;
+        QueryCache cache = data.getQueryCache();
+        long version = data.getVersion();
+        String cached = cache.get(query, version);
+        if (cached != null) {
+            output.out().print(cached);
+            output.out().flush();
+            event.hits = -1;
+            event.cached = true;
+            event.commit();
+            return;
+        }
 
-        List<BookEntry> bookData = data.getBookData();
+        List<BookEntry> hits = titleQuery == null ? data.searchTitles(searchWord) : data.searchTitles(titleQuery);
+        OutputSink out = new OutputSink(output.out());
+        out.record(cache.maxLength());
 
-        for (BookEntry book : bookData) {
-            if (book.getTitle().toLowerCase().contains(searchWord.toLowerCase())) {
-                searchFound = true;
-                System.out.println(book.getTitle());
-            }
+        for (BookEntry book : hits) {
+            out.println(book.getTitle());
+        }
+
+        if (hits.isEmpty()) {
+            out.println("No hits found for search term: " + searchWord);
         }
+        out.flush();
 
-        if (!searchFound) {
-            System.out.println("No hits found for search term: " + searchWord);
+        // a result rendered while the library changed is not cached
+        String rendered = out.recorded();
+        if (rendered != null && data.getVersion() == version) {
+            cache.put(query, version, rendered);
         }
+
+        event.hits = hits.size();
+        event.cached = false;
+        event.commit();
     }
 
     /**
-     * Checks whether an input is valid or not, expected to be made of one word and not empty.
-     * @param argumentInput argument input expected to be one non-null word.
-     * @return boolean, true if argument is not empty and if is only made of one word. Otherwise false.
+     * Checks whether an input is valid or not, expected to be either one word or a boolean query
+     * of words and quoted phrases combined with AND, OR and NOT, see TitleQuery. A single word
+     * containing a quote is parsed as a query too, so a quoted phrase of one word is not searched
+     * for together with its quotes.
+     * @param argumentInput argument input expected to be one non-null word or a valid query.
+     * @return boolean, true if argument is a single non-empty word or a valid query. Otherwise false.
      * @throws NullPointerException if given argumentInput is null.
      */
     @Override
@@ -55,12 +89,20 @@ public class SearchCmd extends LibraryCommand {
         super.parseArguments(argumentInput);
         Objects.requireNonNull(argumentInput, "ERROR: INPUT CANNOT BE NULL");
 
-        if ((isOneWord(argumentInput)) && (!argumentInput.equals(""))) {
+        if (argumentInput.equals("")) {
+            return false;
+        } else if (isOneWord(argumentInput) && argumentInput.indexOf(TitleQuery.QUOTE) == -1) {
             searchWord = argumentInput;
             return true;
-        } else{
+        }
+
+        try {
+            titleQuery = TitleQuery.parse(argumentInput);
+        } catch (IllegalArgumentException e) {
             return false;
         }
+        searchWord = argumentInput;
+        return true;
     }
 
     /**
@@ -0,0 +1,207 @@
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * Hash index from precomputed hash codes to book slots.
+ *
+ * Only the hash code and the slot of every book are kept, in two flat arrays
+ * using open addressing with linear probing, so the index holds no reference
+ * to the indexed objects. Several slots may share a hash code; lookups hand
+ * every slot with a matching hash code to a predicate deciding whether it is
+ * really the one looked for.
+ */
+public class SlotHashIndex {
+
+    /** Marker for an unused table position. */
+    private static final int EMPTY = -1;
+
+    /** Number of table positions of a new index, always a power of two. */
+    private static final int INITIAL_CAPACITY = 1 << 4;
+
+    /** Hash code of the entry at each table position. */
+    private int[] hashes;
+
+    /** Slot of the entry at each table position, EMPTY if the position is unused. */
+    private int[] slots;
+
+    /** Number of entries in the index. */
+    private int size;
+
+    /** Create a new and empty index. */
+    public SlotHashIndex() {
+        hashes = new int[INITIAL_CAPACITY];
+        slots = new int[INITIAL_CAPACITY];
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * @return number of entries in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a slot with the given hash code.
+     * @param hash hash code of the book in the slot
+     * @param slot slot of the book
+     * @throws IllegalArgumentException if the given slot is negative
+     */
+    public void add(int hash, int slot) {
+        if (slot < 0) {
+            throw new IllegalArgumentException("Slot must not be negative: " + slot);
+        }
+        if ((size + 1) * 3L > slots.length * 2L) {
+            resize(slots.length * 2);
+        }
+
+        insert(hash, slot);
+        size++;
+    }
+
+    /**
+     * Find a slot with the given hash code that is accepted by the predicate.
+     * @param hash hash code looked for
+     * @param matches decides if a slot holds the book looked for
+     * @return accepted slot or -1 if there is none
+     * @throws NullPointerException if the given predicate is null
+     */
+    public int find(int hash, IntPredicate matches) {
+        Objects.requireNonNull(matches, "Given predicate must not be null.");
+
+        int mask = slots.length - 1;
+        for (int pos = home(hash, mask); slots[pos] != EMPTY; pos = (pos + 1) & mask) {
+            if (hashes[pos] == hash && matches.test(slots[pos])) {
+                return slots[pos];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the smallest slot with the given hash code that is accepted by the predicate.
+     * @param hash hash code looked for
+     * @param matches decides if a slot holds a book looked for
+     * @return smallest accepted slot or -1 if there is none
+     * @throws NullPointerException if the given predicate is null
+     */
+    public int findFirst(int hash, IntPredicate matches) {
+        Objects.requireNonNull(matches, "Given predicate must not be null.");
+
+        int mask = slots.length - 1;
+        int first = -1;
+        for (int pos = home(hash, mask); slots[pos] != EMPTY; pos = (pos + 1) & mask) {
+            int slot = slots[pos];
+            if (hashes[pos] == hash && (first == -1 || slot < first) && matches.test(slot)) {
+                first = slot;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Remove a slot with the given hash code.
+     * @param hash hash code the slot was added with
+     * @param slot slot to be removed
+     * @return true if the slot was found and removed, false otherwise
+     */
+    public boolean remove(int hash, int slot) {
+        int mask = slots.length - 1;
+        int pos = home(hash, mask);
+        while (slots[pos] != EMPTY && (hashes[pos] != hash || slots[pos] != slot)) {
+            pos = (pos + 1) & mask;
+        }
+        if (slots[pos] == EMPTY) {
+            return false;
+        }
+
+        // shift later entries of the probe sequence back so no lookup runs into a gap
+        int next = pos;
+        while (true) {
+            next = (next + 1) & mask;
+            if (slots[next] == EMPTY) {
+                break;
+            }
+            int nextHome = home(hashes[next], mask);
+            boolean reachable = pos <= next
+                    ? pos < nextHome && nextHome <= next
+                    : pos < nextHome || nextHome <= next;
+            if (!reachable) {
+                hashes[pos] = hashes[next];
+                slots[pos] = slots[next];
+                pos = next;
+            }
+        }
+
+        slots[pos] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * Translate all slots after the library has been compacted.
+     * Slots of removed books have to be removed from the index beforehand.
+     * @param newSlots new slot for every old slot
+     * @throws IllegalStateException if the index still holds a removed slot
+     */
+    public void remap(int[] newSlots) {
+        Objects.requireNonNull(newSlots, "Given slot mapping must not be null.");
+
+        for (int pos = 0; pos < slots.length; pos++) {
+            if (slots[pos] != EMPTY) {
+                int slot = newSlots[slots[pos]];
+                if (slot < 0) {
+                    throw new IllegalStateException("Index still holds removed slot: " + slots[pos]);
+                }
+                slots[pos] = slot;
+            }
+        }
+    }
+
+    /**
+     * Place an entry at the first free position of its probe sequence.
+     * @param hash hash code of the entry
+     * @param slot slot of the entry
+     */
+    private void insert(int hash, int slot) {
+        int mask = slots.length - 1;
+        int pos = home(hash, mask);
+        while (slots[pos] != EMPTY) {
+            pos = (pos + 1) & mask;
+        }
+        hashes[pos] = hash;
+        slots[pos] = slot;
+    }
+
+    /**
+     * Move all entries into tables of the given capacity.
+     * @param capacity new number of table positions, a power of two
+     */
+    private void resize(int capacity) {
+        int[] oldHashes = hashes;
+        int[] oldSlots = slots;
+
+        hashes = new int[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        for (int pos = 0; pos < oldSlots.length; pos++) {
+            if (oldSlots[pos] != EMPTY) {
+                insert(oldHashes[pos], oldSlots[pos]);
+            }
+        }
+    }
+
+    /**
+     * First table position of the probe sequence of a hash code.
+     * @param hash hash code
+     * @param mask table capacity minus one
+     * @return table position
+     */
+    private static int home(int hash, int mask) {
+        // spread the bits, hash codes of similar strings tend to differ in the low bits only
+        int spread = hash * 0x9E3779B9;
+        return (spread ^ (spread >>> 16)) & mask;
+    }
+}
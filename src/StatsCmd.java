@@ -0,0 +1,28 @@
+/**
+ * Stats command printing the metrics collected so far.
+ */
+public class StatsCmd extends LibraryCommand {
+
+    /**
+     * Create a stats command.
+     *
+     * @param argumentInput argument input is expected to be blank
+     * @throws IllegalArgumentException if given arguments are invalid
+     * @throws NullPointerException if the given argumentInput is null.
+     */
+    public StatsCmd(String argumentInput) {
+        super(CommandType.STATS, argumentInput);
+    }
+
+    /**
+     * Execute the stats command. This prints the command counts and latencies, the
+     * loading rates and the query cache counters.
+     *
+     * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
+     */
+    @Override
+    public void execute(LibraryData data, CommandOutput output) {
+        output.out().println(LibraryMetrics.report(data.getQueryCache()));
+    }
+}
@@ -0,0 +1,10 @@
+/** All available ways of storing the book data of a library. */
+public enum StorageMode {
+    /** Keep every book as a BookEntry object. */
+    OBJECTS,
+    /**
+     * Keep the book data in primitive columns and create BookEntry views on demand.
+     * The indexes are not columnar, see ColumnarBookStore for the memory actually saved.
+     */
+    COLUMNAR
+}
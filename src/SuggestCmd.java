@@ -0,0 +1,78 @@
+import java.util.List;
+import java.util.Objects;
+
+public class SuggestCmd extends LibraryCommand {
+
+    /**
+     * Largest number of suggestions printed.
+     */
+    public static final int SUGGESTION_LIMIT = 10;
+
+    /**
+     * Creates Suggest command.
+     * @param suggestTerm whether titles or authors are suggested, followed by their prefix.
+     * @throws NullPointerException if given suggestTerm is null.
+     * @throws IllegalArgumentException if given suggestTerm is invalid.
+     */
+    public SuggestCmd(String suggestTerm) {
+        super(CommandType.SUGGEST, suggestTerm);
+    }
+
+    /**
+     * AUTHOR or TITLE, specifies if authors or titles are suggested.
+     */
+    private String suggestType;
+
+    /**
+     * The start of the title or author typed so far.
+     */
+    private String prefix;
+
+    /**
+     * Checks whether argumentInput is valid or not, first word must be either "AUTHOR" or "TITLE" and
+     * must be followed by the prefix to be completed.
+     * @param argumentInput argument input for this command.
+     * @return true or false, if given argument is valid.
+     * @throws NullPointerException if the given argumentInput is null.
+     */
+    @Override
+    protected boolean parseArguments(String argumentInput) {
+        super.parseArguments(argumentInput);
+        Objects.requireNonNull(argumentInput, "ERROR: CANNOT BE NULL");
+
+        int separator = argumentInput.indexOf(' ');
+        if (separator == -1 || separator == argumentInput.length() - 1) {
+            return false;
+        }
+
+        suggestType = argumentInput.substring(0, separator);
+        // the prefix is kept as typed, including spaces, as it may end between two words
+        prefix = argumentInput.substring(separator + 1);
+        return suggestType.equals("AUTHOR") || suggestType.equals("TITLE");
+    }
+
+    /**
+     * Executes the suggest command, printing the titles or authors starting with the prefix, ignoring case.
+     * Those shared by the most books come first.
+     * @param data book data to be considered for command execution.
+     * @param output output context of this execution.
+     * @throws NullPointerException if given data is null.
+     */
+    @Override
+    public void execute(LibraryData data, CommandOutput output) {
+        Objects.requireNonNull(data, "ERROR: CANNOT BE NULL");
+
+        List<String> suggestions = suggestType.equals("AUTHOR")
+                ? data.suggestAuthors(prefix, SUGGESTION_LIMIT)
+                : data.suggestTitles(prefix, SUGGESTION_LIMIT);
+
+        for (String suggestion : suggestions) {
+            output.out().println(suggestion);
+        }
+
+        if (suggestions.isEmpty()) {
+            output.out().println("No suggestions found for prefix: " + prefix);
+        }
+    }
+
+}
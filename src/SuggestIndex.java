@@ -0,0 +1,379 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Compressed radix trie over names, such as book titles or author names, used for
+ * prefix completion.
+ *
+ * Every name is kept with the number of times it has been added. Names sharing a prefix
+ * share the nodes holding it, and a node only branches where two names differ, so every
+ * node holds a whole run of characters. Each node also knows the largest count below it,
+ * which lets the most frequent completions of a prefix be found best first without
+ * visiting the rest of the trie.
+ *
+ * Prefixes are matched ignoring case, the completions keep the case they were added with.
+ * An index can be read by any number of threads at once, but must not be read while it
+ * is changed.
+ */
+public class SuggestIndex {
+
+    /** Order of completions with the same count, a name always comes before its extensions. */
+    private static final Comparator<String> NAME_ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    /** Order in which completions are looked at, most frequent first. */
+    private static final Comparator<Candidate> CANDIDATE_ORDER =
+            Comparator.<Candidate>comparingInt(candidate -> -candidate.count)
+                    .thenComparing(candidate -> candidate.name, NAME_ORDER);
+
+    /** Children of a node without any. */
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /** Node of the empty prefix, never removed or merged. */
+    private final Node root;
+
+    /** Number of distinct names. */
+    private int size;
+
+    /** Create a new and empty index. */
+    public SuggestIndex() {
+        root = new Node(new char[0]);
+        size = 0;
+    }
+
+    /**
+     * Get the number of distinct names.
+     * @return number of names held by this index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a name once more.
+     * @param name name to be added
+     * @throws NullPointerException if the given name is null
+     */
+    public void add(String name) {
+        Objects.requireNonNull(name, "Given name must not be null.");
+        insert(root, name, 0);
+    }
+
+    /**
+     * Remove a name once, dropping it when it has been removed as often as it was added.
+     * @param name name to be removed
+     * @return true if the name was found, false otherwise
+     * @throws NullPointerException if the given name is null
+     */
+    public boolean remove(String name) {
+        Objects.requireNonNull(name, "Given name must not be null.");
+        return delete(root, name, 0);
+    }
+
+    /**
+     * Find the most frequent names starting with the given prefix, ignoring case.
+     * Names added equally often are ordered ignoring case.
+     * @param prefix prefix of the names, the empty prefix matches every name
+     * @param limit largest number of names returned
+     * @return matching names, most frequent first
+     * @throws NullPointerException if the given prefix is null
+     * @throws IllegalArgumentException if the given limit is negative
+     */
+    public List<String> complete(String prefix, int limit) {
+        Objects.requireNonNull(prefix, "Given prefix must not be null.");
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(CANDIDATE_ORDER);
+        if (prefix.isEmpty()) {
+            candidates.add(new Candidate("", root, root.max));
+        } else {
+            collectMatches(root, "", prefix, 0, candidates);
+        }
+
+        List<String> names = new ArrayList<>(Math.min(limit, size));
+        while (names.size() < limit && !candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            Node node = candidate.node;
+            if (node == null) {
+                names.add(candidate.name);
+                continue;
+            }
+
+            // the name ending here sorts before the longer names below it
+            if (node.count > 0) {
+                candidates.add(new Candidate(candidate.name, null, node.count));
+            }
+            for (Node child : node.children) {
+                candidates.add(new Candidate(candidate.name + new String(child.label), child, child.max));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Find the nodes below which every name starts with the prefix. Several nodes can
+     * match, as the prefix is matched ignoring case.
+     * @param node node reached by the first characters of the prefix
+     * @param name characters of the names leading to the node
+     * @param prefix prefix of the names
+     * @param pos number of characters of the prefix matched by the node
+     * @param candidates queue the matching nodes are added to
+     */
+    private static void collectMatches(Node node, String name, String prefix, int pos,
+                                       PriorityQueue<Candidate> candidates) {
+        int remaining = prefix.length() - pos;
+        for (Node child : node.children) {
+            char[] label = child.label;
+            int length = Math.min(label.length, remaining);
+            if (regionMatches(label, prefix, pos, length)) {
+                String childName = name + new String(label);
+                if (label.length >= remaining) {
+                    candidates.add(new Candidate(childName, child, child.max));
+                } else {
+                    collectMatches(child, childName, prefix, pos + length, candidates);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a name below a node.
+     * @param node node reached by the first characters of the name
+     * @param name name to be added
+     * @param pos number of characters of the name matched by the node
+     */
+    private void insert(Node node, String name, int pos) {
+        if (pos == name.length()) {
+            if (node.count == 0) {
+                size++;
+            }
+            node.count++;
+            node.max = Math.max(node.max, node.count);
+            return;
+        }
+
+        int index = node.childIndex(name.charAt(pos));
+        if (index < 0) {
+            Node leaf = new Node(name.substring(pos).toCharArray());
+            leaf.count = 1;
+            leaf.max = 1;
+            node.insertChild(-index - 1, leaf);
+            node.max = Math.max(node.max, 1);
+            size++;
+            return;
+        }
+
+        Node child = node.children[index];
+        int common = commonLength(child.label, name, pos);
+        if (common < child.label.length) {
+            // split the child where the name leaves its characters
+            Node split = new Node(Arrays.copyOf(child.label, common));
+            child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+            split.children = new Node[] {child};
+            split.max = child.max;
+            node.children[index] = split;
+            child = split;
+        }
+
+        insert(child, name, pos + common);
+        node.max = Math.max(node.max, child.max);
+    }
+
+    /**
+     * Remove a name below a node, dropping and merging the nodes no longer needed.
+     * @param node node reached by the first characters of the name
+     * @param name name to be removed
+     * @param pos number of characters of the name matched by the node
+     * @return true if the name was found, false otherwise
+     */
+    private boolean delete(Node node, String name, int pos) {
+        if (pos == name.length()) {
+            if (node.count == 0) {
+                return false;
+            }
+            node.count--;
+            if (node.count == 0) {
+                size--;
+            }
+            node.updateMax();
+            return true;
+        }
+
+        int index = node.childIndex(name.charAt(pos));
+        if (index < 0) {
+            return false;
+        }
+        Node child = node.children[index];
+        if (commonLength(child.label, name, pos) < child.label.length || !delete(child, name, pos + child.label.length)) {
+            return false;
+        }
+
+        if (child.count == 0 && child.children.length == 0) {
+            node.removeChild(index);
+        } else if (child.count == 0 && child.children.length == 1) {
+            // a node neither ending a name nor branching is merged into its only child
+            Node grandchild = child.children[0];
+            char[] label = Arrays.copyOf(child.label, child.label.length + grandchild.label.length);
+            System.arraycopy(grandchild.label, 0, label, child.label.length, grandchild.label.length);
+            grandchild.label = label;
+            node.children[index] = grandchild;
+        }
+        node.updateMax();
+        return true;
+    }
+
+    /**
+     * Count the characters a label has in common with a name.
+     * @param label characters of a node
+     * @param name name
+     * @param pos position in the name the label is compared from
+     * @return length of the common prefix
+     */
+    private static int commonLength(char[] label, String name, int pos) {
+        int length = Math.min(label.length, name.length() - pos);
+        int common = 0;
+        while (common < length && label[common] == name.charAt(pos + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    /**
+     * Checks whether the first characters of a label equal a region of a prefix, ignoring
+     * case just like String.regionMatches does.
+     * @param label characters of a node
+     * @param prefix prefix
+     * @param pos first character of the region
+     * @param length number of characters compared
+     * @return true if the characters match, false otherwise
+     */
+    private static boolean regionMatches(char[] label, String prefix, int pos, int length) {
+        for (int i = 0; i < length; i++) {
+            char a = label[i];
+            char b = prefix.charAt(pos + i);
+            if (a != b) {
+                char upperA = Character.toUpperCase(a);
+                char upperB = Character.toUpperCase(b);
+                if (upperA != upperB && Character.toLowerCase(upperA) != Character.toLowerCase(upperB)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Node of the trie, holding the characters between its parent and itself. */
+    private static final class Node {
+
+        /** Characters leading from the parent to this node, never empty but for the root. */
+        private char[] label;
+
+        /** Child nodes sorted by the first character of their label, which differs for all of them. */
+        private Node[] children;
+
+        /** Number of times the name ending at this node has been added, 0 if no name ends here. */
+        private int count;
+
+        /** Largest count of this node and all nodes below it. */
+        private int max;
+
+        /**
+         * Create a node without children.
+         * @param label characters leading from the parent to the node
+         */
+        Node(char[] label) {
+            this.label = label;
+            children = NO_CHILDREN;
+        }
+
+        /**
+         * Find the child whose label starts with a character.
+         * @param first first character of the label
+         * @return index of the child or (-(insertion point) - 1) if there is none
+         */
+        int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midFirst = children[mid].label[0];
+                if (midFirst < first) {
+                    low = mid + 1;
+                } else if (midFirst > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Insert a child.
+         * @param index position of the child
+         * @param child node to be inserted
+         */
+        void insertChild(int index, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+
+        /**
+         * Remove a child.
+         * @param index position of the child
+         */
+        void removeChild(int index) {
+            if (children.length == 1) {
+                children = NO_CHILDREN;
+                return;
+            }
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, shrunk.length - index);
+            children = shrunk;
+        }
+
+        /** Compute the largest count again after a count below this node dropped. */
+        void updateMax() {
+            int largest = count;
+            for (Node child : children) {
+                largest = Math.max(largest, child.max);
+            }
+            max = largest;
+        }
+    }
+
+    /** Name or node waiting to be looked at while completing a prefix. */
+    private static final class Candidate {
+
+        /** Characters leading to the node or the completed name. */
+        private final String name;
+
+        /** Node below which completions are found, null if the name itself is a completion. */
+        private final Node node;
+
+        /** Count of the name, or the largest count below the node. */
+        private final int count;
+
+        /**
+         * Create a candidate.
+         * @param name characters leading to the node or the completed name
+         * @param node node below which completions are found, null for a completed name
+         * @param count count of the name or largest count below the node
+         */
+        Candidate(String name, Node node, int count) {
+            this.name = name;
+            this.node = node;
+            this.count = count;
+        }
+    }
+}
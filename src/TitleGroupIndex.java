@@ -0,0 +1,93 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index keeping the titles of all books sorted within groups by their first letter.
+ *
+ * There is one group for every letter from A to Z and a last group for titles not
+ * starting with one of them. Within a group titles are ordered ignoring case, titles
+ * only differing in case are ordered by their natural order. Every distinct title is
+ * kept once together with the number of books having it.
+ *
+ * Every group is a concurrent skip list, so titles can be read while books are added
+ * or removed; reading a group then sees some of the concurrent changes.
+ */
+public class TitleGroupIndex {
+
+    /** Number of title groups. */
+    public static final int GROUP_COUNT = 27;
+
+    /** Order of the titles within a group. */
+    private static final Comparator<String> TITLE_ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    /** Sorted titles of each group with the number of books having them. */
+    private final List<ConcurrentSkipListMap<String, Integer>> groups;
+
+    /** Create a new and empty index. */
+    public TitleGroupIndex() {
+        groups = new ArrayList<>(GROUP_COUNT);
+        for (int group = 0; group < GROUP_COUNT; group++) {
+            groups.add(new ConcurrentSkipListMap<>(TITLE_ORDER));
+        }
+    }
+
+    /**
+     * Add the title of a book.
+     * @param title title of the book
+     * @throws NullPointerException if the given title is null
+     */
+    public void add(String title) {
+        Objects.requireNonNull(title, "Given title must not be null.");
+        groups.get(groupOf(title)).merge(title, 1, Integer::sum);
+    }
+
+    /**
+     * Remove the title of a book.
+     * @param title title of a book that has been added
+     * @throws NullPointerException if the given title is null
+     */
+    public void remove(String title) {
+        Objects.requireNonNull(title, "Given title must not be null.");
+        groups.get(groupOf(title)).computeIfPresent(title, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Get the sorted titles of a group.
+     * @param group index of the group
+     * @return read-only, weakly consistent view of the titles of the group with the number of books having them
+     * @throws IndexOutOfBoundsException if the group does not exist
+     */
+    public NavigableMap<String, Integer> titles(int group) {
+        return Collections.unmodifiableNavigableMap(groups.get(group));
+    }
+
+    /**
+     * Find the group of a title.
+     * @param title title of a book
+     * @return index of the group
+     */
+    public static int groupOf(String title) {
+        if (title.isEmpty()) {
+            return GROUP_COUNT - 1;
+        }
+
+        char firstLetter = title.substring(0, 1).toUpperCase().charAt(0);
+        return firstLetter >= 'A' && firstLetter <= 'Z' ? firstLetter - 'A' : GROUP_COUNT - 1;
+    }
+
+    /**
+     * @param group index of a group
+     * @return name of the group shown in its header
+     * @throws IndexOutOfBoundsException if the group does not exist
+     */
+    public static String groupName(int group) {
+        Objects.checkIndex(group, GROUP_COUNT);
+        return group == GROUP_COUNT - 1 ? "[0-9]" : String.valueOf((char) ('A' + group));
+    }
+}
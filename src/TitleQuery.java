@@ -0,0 +1,356 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Boolean query over book titles, as accepted by SEARCH when given more than one word or a quote.
+ *
+ * A query consists of words and quoted phrases combined with the operators AND, OR and
+ * NOT, which have to be written in upper case. NOT binds strongest, then AND, then OR;
+ * operands written next to each other without an operator are combined with AND.
+ * Just like a single search word, every word and phrase matches all titles containing
+ * it, ignoring case. For example {@code harry "the half" OR NOT potter}.
+ *
+ * Queries are evaluated on sorted slot lists: the slots of every word are taken from the
+ * title search index, phrases are narrowed down with the slots of their words before the
+ * titles are checked, and the operators intersect, unite and subtract the slot lists.
+ */
+public abstract class TitleQuery {
+
+    /** Operator keeping the titles matched by both operands. */
+    private static final String AND = "AND";
+
+    /** Operator keeping the titles matched by either operand. */
+    private static final String OR = "OR";
+
+    /** Operator keeping the titles not matched by its operand. */
+    private static final String NOT = "NOT";
+
+    /** Character enclosing a phrase. */
+    public static final char QUOTE = '"';
+
+    /** Separator between words. */
+    private static final char SEPARATOR = ' ';
+
+    /** Slots and titles a query is evaluated on. */
+    public interface Source {
+
+        /**
+         * @param word lower cased, non-empty word without spaces
+         * @return sorted slots of all titles containing the word, possibly including removed books
+         */
+        PostingList search(String word);
+
+        /**
+         * @param slot slot of a book
+         * @param phrase lower cased phrase
+         * @return true if the book has not been removed and its title contains the phrase
+         */
+        boolean titleContains(int slot, String phrase);
+
+        /**
+         * @return number of slots, removed books included
+         */
+        int slotCount();
+    }
+
+    /** Only created by parse. */
+    private TitleQuery() {
+        // nothing to do
+    }
+
+    /**
+     * Find the slots of all titles matching this query.
+     * The result must not be modified, as it may be a posting list of the source itself.
+     * @param source slots and titles the query is evaluated on
+     * @return sorted slots of matching titles, possibly including removed books
+     */
+    public abstract PostingList evaluate(Source source);
+
+    /**
+     * Parse a query.
+     * @param query query as typed after SEARCH
+     * @return parsed query
+     * @throws IllegalArgumentException if the query is empty, has an unbalanced quote or an operator without operand
+     * @throws NullPointerException if the given query is null
+     */
+    public static TitleQuery parse(String query) {
+        Objects.requireNonNull(query, "Given query must not be null.");
+
+        Parser parser = new Parser(tokenize(query));
+        TitleQuery parsed = parser.parseOr();
+        if (parser.hasNext()) {
+            throw new IllegalArgumentException("Unexpected operator in query: " + query);
+        }
+        return parsed;
+    }
+
+    /**
+     * Split a query into words, phrases and operators.
+     * @param query query to be split
+     * @return tokens of the query, phrases still enclosed in quotes
+     * @throws IllegalArgumentException if a quote is not closed
+     */
+    private static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        int pos = 0;
+        while (pos < query.length()) {
+            char c = query.charAt(pos);
+            if (c == SEPARATOR) {
+                pos++;
+            } else if (c == QUOTE) {
+                int end = query.indexOf(QUOTE, pos + 1);
+                if (end == -1) {
+                    throw new IllegalArgumentException("Unbalanced quote in query: " + query);
+                }
+                tokens.add(query.substring(pos, end + 1));
+                pos = end + 1;
+            } else {
+                int end = pos;
+                while (end < query.length() && query.charAt(end) != SEPARATOR && query.charAt(end) != QUOTE) {
+                    end++;
+                }
+                tokens.add(query.substring(pos, end));
+                pos = end;
+            }
+        }
+        return tokens;
+    }
+
+    /** Recursive descent parser over the tokens of a query. */
+    private static class Parser {
+
+        /** Tokens of the query. */
+        private final List<String> tokens;
+
+        /** Position of the next token. */
+        private int pos;
+
+        /**
+         * Create a parser.
+         * @param tokens tokens of the query
+         */
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+            pos = 0;
+        }
+
+        /**
+         * @return true if there are tokens left
+         */
+        boolean hasNext() {
+            return pos < tokens.size();
+        }
+
+        /**
+         * Parse operands combined with OR.
+         * @return parsed query
+         */
+        TitleQuery parseOr() {
+            List<TitleQuery> operands = new ArrayList<>();
+            operands.add(parseAnd());
+            while (hasNext() && tokens.get(pos).equals(OR)) {
+                pos++;
+                operands.add(parseAnd());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Or(operands);
+        }
+
+        /**
+         * Parse operands combined with AND, written or implied.
+         * @return parsed query
+         */
+        TitleQuery parseAnd() {
+            List<TitleQuery> operands = new ArrayList<>();
+            operands.add(parseNot());
+            while (hasNext() && !tokens.get(pos).equals(OR)) {
+                if (tokens.get(pos).equals(AND)) {
+                    pos++;
+                }
+                operands.add(parseNot());
+            }
+            return operands.size() == 1 ? operands.get(0) : new And(operands);
+        }
+
+        /**
+         * Parse an operand, possibly negated. Consecutive NOTs are folded in a loop, an even
+         * number of them cancelling out, so no chain of them can overflow the stack.
+         * @return parsed query
+         * @throws IllegalArgumentException if the operand is missing
+         */
+        TitleQuery parseNot() {
+            boolean negated = false;
+            while (hasNext() && tokens.get(pos).equals(NOT)) {
+                negated = !negated;
+                pos++;
+            }
+            TitleQuery operand = parseOperand();
+            return negated ? new Not(operand) : operand;
+        }
+
+        /**
+         * Parse a word or phrase.
+         * @return parsed query
+         * @throws IllegalArgumentException if the operand is missing
+         */
+        TitleQuery parseOperand() {
+            if (!hasNext()) {
+                throw new IllegalArgumentException("Missing operand at the end of the query.");
+            }
+
+            String token = tokens.get(pos++);
+            if (token.equals(AND) || token.equals(OR)) {
+                throw new IllegalArgumentException("Missing operand before " + token + ".");
+            } else if (token.charAt(0) == QUOTE) {
+                String phrase = token.substring(1, token.length() - 1).toLowerCase();
+                if (phrase.isBlank()) {
+                    throw new IllegalArgumentException("Empty phrase in query.");
+                }
+                return new Phrase(phrase);
+            }
+            return new Word(token.toLowerCase());
+        }
+    }
+
+    /** Titles containing a single word. */
+    private static class Word extends TitleQuery {
+
+        /** Lower cased word without spaces. */
+        private final String word;
+
+        /**
+         * Create a word query.
+         * @param word lower cased word without spaces
+         */
+        Word(String word) {
+            this.word = word;
+        }
+
+        @Override
+        public PostingList evaluate(Source source) {
+            return source.search(word);
+        }
+    }
+
+    /** Titles containing a phrase, which may contain spaces. */
+    private static class Phrase extends TitleQuery {
+
+        /** Lower cased phrase. */
+        private final String phrase;
+
+        /** Words of the phrase, every matching title contains all of them. */
+        private final List<String> words;
+
+        /**
+         * Create a phrase query.
+         * @param phrase lower cased phrase, not blank
+         */
+        Phrase(String phrase) {
+            this.phrase = phrase;
+            words = tokenize(phrase);
+        }
+
+        @Override
+        public PostingList evaluate(Source source) {
+            PostingList candidates = source.search(words.get(0));
+            if (words.size() == 1 && phrase.indexOf(SEPARATOR) == -1) {
+                return candidates;
+            }
+
+            for (int i = 1; i < words.size() && !candidates.isEmpty(); i++) {
+                candidates = PostingList.intersect(candidates, source.search(words.get(i)));
+            }
+
+            PostingList matches = new PostingList();
+            for (int i = 0; i < candidates.size(); i++) {
+                if (source.titleContains(candidates.get(i), phrase)) {
+                    matches.add(candidates.get(i));
+                }
+            }
+            return matches;
+        }
+    }
+
+    /** Titles not matched by a query. */
+    private static class Not extends TitleQuery {
+
+        /** Negated query. */
+        private final TitleQuery operand;
+
+        /**
+         * Create a negated query.
+         * @param operand negated query
+         */
+        Not(TitleQuery operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public PostingList evaluate(Source source) {
+            return PostingList.difference(PostingList.range(source.slotCount()), operand.evaluate(source));
+        }
+    }
+
+    /** Titles matched by all of several queries. */
+    private static class And extends TitleQuery {
+
+        /** Queries all matching titles have to match. */
+        private final List<TitleQuery> operands;
+
+        /**
+         * Create a conjunction.
+         * @param operands at least two queries
+         */
+        And(List<TitleQuery> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public PostingList evaluate(Source source) {
+            // intersect the positive operands smallest first, then leave out the negated ones
+            List<PostingList> included = new ArrayList<>();
+            List<TitleQuery> excluded = new ArrayList<>();
+            for (TitleQuery operand : operands) {
+                if (operand instanceof Not) {
+                    excluded.add(((Not) operand).operand);
+                } else {
+                    included.add(operand.evaluate(source));
+                }
+            }
+            included.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+            PostingList result = included.isEmpty() ? PostingList.range(source.slotCount()) : included.get(0);
+            for (int i = 1; i < included.size() && !result.isEmpty(); i++) {
+                result = PostingList.intersect(result, included.get(i));
+            }
+            for (int i = 0; i < excluded.size() && !result.isEmpty(); i++) {
+                result = PostingList.difference(result, excluded.get(i).evaluate(source));
+            }
+            return result;
+        }
+    }
+
+    /** Titles matched by any of several queries. */
+    private static class Or extends TitleQuery {
+
+        /** Queries of which matching titles have to match at least one. */
+        private final List<TitleQuery> operands;
+
+        /**
+         * Create a disjunction.
+         * @param operands at least two queries
+         */
+        Or(List<TitleQuery> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public PostingList evaluate(Source source) {
+            PostingList result = operands.get(0).evaluate(source);
+            for (int i = 1; i < operands.size(); i++) {
+                result = PostingList.union(result, operands.get(i).evaluate(source));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the boolean title queries: operator precedence, folding of NOT chains,
+ * phrases and the rejection of invalid queries, each compared against a predicate
+ * checked on every title.
+ */
+public class TitleQueryTest {
+
+    /** Words titles are made of. */
+    private static final String[] WORDS = { "Alpha", "Beta", "Gamma", "Order" };
+
+    /** Every order of every non-empty subset of the words, so phrases have to match in order. */
+    private static final List<String> TITLES = new ArrayList<>();
+
+    static {
+        addTitles("", new boolean[WORDS.length]);
+    }
+
+    /** Output the library messages are discarded to. */
+    private final CommandOutput quiet = new CommandOutput(new PrintStream(OutputStream.nullOutputStream()),
+            new PrintStream(OutputStream.nullOutputStream()));
+
+    /** Book data file of the test. */
+    private Path bookFile;
+
+    @Before
+    public void setUp() throws IOException {
+        bookFile = Files.createTempFile("query-test", ".csv");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(bookFile);
+    }
+
+    /**
+     * Add the given title and every title it can be extended to by unused words.
+     * @param title title so far, empty at first
+     * @param used words already in the title
+     */
+    private static void addTitles(String title, boolean[] used) {
+        if (!title.isEmpty()) {
+            TITLES.add(title);
+        }
+        for (int i = 0; i < WORDS.length; i++) {
+            if (!used[i]) {
+                used[i] = true;
+                addTitles(title.isEmpty() ? WORDS[i] : title + " " + WORDS[i], used);
+                used[i] = false;
+            }
+        }
+    }
+
+    /** Query source scanning a list of titles, null for removed books. */
+    private static class ScanSource implements TitleQuery.Source {
+
+        /** Titles by slot. */
+        private final List<String> titles;
+
+        /**
+         * Create a source.
+         * @param titles titles by slot, null for removed books
+         */
+        ScanSource(List<String> titles) {
+            this.titles = titles;
+        }
+
+        @Override
+        public PostingList search(String word) {
+            PostingList slots = new PostingList();
+            for (int slot = 0; slot < titles.size(); slot++) {
+                if (titles.get(slot) != null && titles.get(slot).toLowerCase().contains(word)) {
+                    slots.add(slot);
+                }
+            }
+            return slots;
+        }
+
+        @Override
+        public boolean titleContains(int slot, String phrase) {
+            return titles.get(slot) != null && titles.get(slot).toLowerCase().contains(phrase);
+        }
+
+        @Override
+        public int slotCount() {
+            return titles.size();
+        }
+    }
+
+    private static Predicate<String> has(String part) {
+        return title -> title.toLowerCase().contains(part);
+    }
+
+    private static List<String> filter(List<String> titles, Predicate<String> reference) {
+        List<String> matching = new ArrayList<>();
+        for (String title : titles) {
+            if (title != null && reference.test(title)) {
+                matching.add(title);
+            }
+        }
+        return matching;
+    }
+
+    private static List<String> evaluate(List<String> titles, String query) {
+        PostingList slots = TitleQuery.parse(query).evaluate(new ScanSource(titles));
+        List<String> matching = new ArrayList<>();
+        for (int i = 0; i < slots.size(); i++) {
+            if (titles.get(slots.get(i)) != null) {
+                matching.add(titles.get(slots.get(i)));
+            }
+        }
+        return matching;
+    }
+
+    private static void assertQuery(String query, Predicate<String> reference) {
+        assertEquals("Titles for: " + query, filter(TITLES, reference), evaluate(TITLES, query));
+    }
+
+    @Test
+    public void testPrecedence() {
+        Predicate<String> alpha = has("alpha");
+        Predicate<String> beta = has("beta");
+        Predicate<String> gamma = has("gamma");
+
+        assertQuery("alpha OR beta gamma", alpha.or(beta.and(gamma)));
+        assertQuery("alpha beta OR gamma", alpha.and(beta).or(gamma));
+        assertQuery("alpha OR beta AND gamma", alpha.or(beta.and(gamma)));
+        assertQuery("NOT alpha beta", alpha.negate().and(beta));
+        assertQuery("NOT alpha OR beta", alpha.negate().or(beta));
+        assertQuery("alpha AND NOT beta OR gamma", alpha.and(beta.negate()).or(gamma));
+        assertQuery("alpha NOT beta NOT gamma", alpha.and(beta.negate()).and(gamma.negate()));
+        assertQuery("NOT alpha NOT beta", alpha.negate().and(beta.negate()));
+        assertQuery("alpha AND beta AND gamma OR NOT alpha", alpha.and(beta).and(gamma).or(alpha.negate()));
+    }
+
+    @Test
+    public void testWordsAndOperatorsCase() {
+        // operators are upper case only, anything else is a word matched ignoring case
+        assertQuery("ALPHA BeTa", has("alpha").and(has("beta")));
+        assertQuery("alpha or beta", has("alpha").and(has("or")).and(has("beta")));
+        assertQuery("alpha not beta", has("alpha").and(has("not")).and(has("beta")));
+        assertQuery("ph ET", has("ph").and(has("et")));
+    }
+
+    @Test
+    public void testNotFolding() {
+        Predicate<String> alpha = has("alpha");
+
+        assertQuery("NOT NOT alpha", alpha);
+        assertQuery("NOT NOT NOT alpha", alpha.negate());
+        assertQuery("beta NOT NOT alpha", has("beta").and(alpha));
+
+        // chains far longer than the stack could hold nested NOTs are folded in a loop
+        for (int count : new int[] { 100_000, 100_001 }) {
+            StringBuilder query = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                query.append("NOT ");
+            }
+            query.append("alpha");
+            assertQuery(query.toString(), count % 2 == 0 ? alpha : alpha.negate());
+        }
+    }
+
+    @Test
+    public void testPhrases() {
+        assertQuery("\"alpha beta\"", has("alpha beta"));
+        assertQuery("\"ALPHA BETA\" OR \"gamma alpha\"", has("alpha beta").or(has("gamma alpha")));
+        assertQuery("\"beta\"", has("beta"));
+        assertQuery("\"a be\"", has("a be"));
+        assertQuery("NOT \"alpha beta\" gamma", has("alpha beta").negate().and(has("gamma")));
+        assertQuery("\"alpha OR beta\"", has("alpha or beta"));
+        assertQuery("alpha\"beta gamma\"", has("alpha").and(has("beta gamma")));
+        assertQuery("\"alpha  beta\"", has("alpha  beta"));
+    }
+
+    @Test
+    public void testRemovedBooksNotMatched() {
+        List<String> titles = new ArrayList<>(TITLES);
+        for (int slot = 0; slot < titles.size(); slot += 3) {
+            titles.set(slot, null);
+        }
+
+        for (String query : Arrays.asList("NOT alpha", "NOT NOT alpha", "alpha OR NOT beta", "\"beta gamma\"")) {
+            List<String> all = evaluate(TITLES, query);
+            assertEquals("Titles for: " + query, filter(titles, all::contains), evaluate(titles, query));
+        }
+    }
+
+    @Test
+    public void testInvalidQueriesRejected() {
+        String[] invalid = {
+                "", "   ", "\"alpha", "alpha \"beta", "\"alpha\" \"", "\"\"", "\"  \"",
+                "NOT", "NOT NOT", "alpha OR", "alpha AND", "alpha NOT", "OR alpha", "AND alpha",
+                "alpha OR OR beta", "alpha AND OR beta", "alpha OR AND beta", "NOT OR alpha",
+        };
+        for (String query : invalid) {
+            assertThrows(query, IllegalArgumentException.class, () -> TitleQuery.parse(query));
+        }
+        assertThrows(NullPointerException.class, () -> TitleQuery.parse(null));
+    }
+
+    @Test
+    public void testLibraryQueriesMatchReference() throws IOException {
+        StringBuilder rows = new StringBuilder("title,authors,average_rating,isbn,num_pages\n");
+        for (int i = 0; i < TITLES.size(); i++) {
+            rows.append(TITLES.get(i)).append(",Author,4.0,").append(i).append(",100\n");
+        }
+        Files.write(bookFile, rows.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (StorageMode mode : StorageMode.values()) {
+            LibraryData data = new LibraryData(mode);
+            assertTrue(data.loadData(bookFile, quiet));
+            List<String> remaining = new ArrayList<>(TITLES);
+            for (int i = 0; i < TITLES.size(); i += 2) {
+                assertNotNull(data.removeByTitle(TITLES.get(i), quiet));
+                remaining.remove(TITLES.get(i));
+            }
+
+            List<Predicate<String>> references = Arrays.asList(has("alpha").or(has("beta").and(has("gamma"))),
+                    has("alpha").negate(), has("beta gamma").and(has("order").negate()));
+            List<String> queries = Arrays.asList("alpha OR beta gamma", "NOT NOT NOT alpha",
+                    "\"beta gamma\" NOT order");
+            for (int i = 0; i < queries.size(); i++) {
+                List<String> found = new ArrayList<>();
+                for (BookEntry book : data.searchTitles(TitleQuery.parse(queries.get(i)))) {
+                    found.add(book.getTitle());
+                }
+                assertEquals(mode + " titles for: " + queries.get(i), filter(remaining, references.get(i)), found);
+            }
+        }
+    }
+
+    @Test
+    public void testQuotedSingleWordSearchedAsQuery() throws IOException {
+        StringBuilder rows = new StringBuilder("title,authors,average_rating,isbn,num_pages\n");
+        for (int i = 0; i < TITLES.size(); i++) {
+            rows.append(TITLES.get(i)).append(",Author,4.0,").append(i).append(",100\n");
+        }
+        Files.write(bookFile, rows.toString().getBytes(StandardCharsets.UTF_8));
+        LibraryData data = new LibraryData(StorageMode.OBJECTS);
+        assertTrue(data.loadData(bookFile, quiet));
+
+        // the quotes are not part of the searched text, so a quoted word finds what the word finds
+        ByteArrayOutputStream quoted = new ByteArrayOutputStream();
+        new SearchCmd("\"beta\"").execute(data, new CommandOutput(new PrintStream(quoted, true),
+                new PrintStream(OutputStream.nullOutputStream())));
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        new SearchCmd("beta").execute(data, new CommandOutput(new PrintStream(plain, true),
+                new PrintStream(OutputStream.nullOutputStream())));
+
+        assertFalse(quoted.toString().contains("No hits found"));
+        assertEquals(plain.toString(), quoted.toString());
+        assertEquals(filter(TITLES, has("beta")).size(), quoted.toString().split("\n").length);
+
+        assertThrows(IllegalArgumentException.class, () -> new SearchCmd("beta\""));
+        assertThrows(IllegalArgumentException.class, () -> new SearchCmd("\"\""));
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index over book titles, answering case-insensitive substring searches
+ * without scanning every title.
+ *
+ * Titles are lower cased and split at spaces into tokens, and every token keeps a
+ * posting list of the book slots whose title contains it. A trigram index over the
+ * distinct tokens finds all tokens containing a query. A query without spaces can
+ * only match within a single token, so the union of the postings of those tokens
+ * are exactly the titles containing the query.
+ */
+public class TitleSearchIndex {
+
+    /** Length of the n-grams indexed for each token. */
+    private static final int GRAM_LENGTH = 3;
+
+    /** Separator between the tokens of a title. */
+    private static final char TOKEN_SEPARATOR = ' ';
+
+    /** Book slots for every lower cased title token. */
+    private final Map<String, PostingList> tokenPostings;
+
+    /** Distinct tokens for every trigram, trigrams are packed into a long. */
+    private final Map<Long, Set<String>> gramTokens;
+
+    /** Create a new and empty search index. */
+    public TitleSearchIndex() {
+        tokenPostings = new HashMap<>();
+        gramTokens = new HashMap<>();
+    }
+
+    /**
+     * Add a title to the index.
+     * @param slot slot of the book, larger than all slots added before
+     * @param title title of the book
+     */
+    public void add(int slot, String title) {
+        String lowerTitle = title.toLowerCase();
+        int start = 0;
+
+        while (start <= lowerTitle.length()) {
+            int end = lowerTitle.indexOf(TOKEN_SEPARATOR, start);
+            if (end == -1) {
+                end = lowerTitle.length();
+            }
+
+            if (end > start) {
+                String token = lowerTitle.substring(start, end);
+                PostingList postings = tokenPostings.get(token);
+                if (postings == null) {
+                    postings = new PostingList();
+                    tokenPostings.put(token, postings);
+                    addGrams(token);
+                }
+                postings.add(slot);
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Find the slots of all titles containing the given lower cased query.
+     *
+     * The result can contain slots of removed books, which the caller has to skip.
+     * It must not be modified, as it may be a posting list of the index itself.
+     *
+     * @param query lower cased, non-empty search word without spaces
+     * @return sorted slots of matching titles
+     * @throws IllegalArgumentException if the query is empty or contains a space
+     */
+    public PostingList search(String query) {
+        if (query.isEmpty() || query.indexOf(TOKEN_SEPARATOR) != -1) {
+            throw new IllegalArgumentException("Query must be a single non-empty word: " + query);
+        }
+
+        Set<String> candidates = query.length() < GRAM_LENGTH ? tokenPostings.keySet() : gramCandidates(query);
+
+        PostingList single = null;
+        BitSet union = null;
+        for (String token : candidates) {
+            if (!token.contains(query)) {
+                continue;
+            }
+
+            PostingList postings = tokenPostings.get(token);
+            if (single == null && union == null) {
+                single = postings;
+            } else {
+                if (union == null) {
+                    union = new BitSet();
+                    setAll(union, single);
+                }
+                setAll(union, postings);
+            }
+        }
+
+        if (union == null) {
+            return single == null ? new PostingList() : single;
+        }
+
+        PostingList result = new PostingList();
+        for (int slot = union.nextSetBit(0); slot >= 0; slot = union.nextSetBit(slot + 1)) {
+            result.add(slot);
+        }
+        return result;
+    }
+
+    /**
+     * Translate all slots after the library has been compacted.
+     * Tokens left without any slot are dropped from the index.
+     * @param newSlots new slot for every old slot, or -1 if it was removed
+     */
+    public void remap(int[] newSlots) {
+        Iterator<Map.Entry<String, PostingList>> tokenIter = tokenPostings.entrySet().iterator();
+        while (tokenIter.hasNext()) {
+            Map.Entry<String, PostingList> token = tokenIter.next();
+            token.getValue().remap(newSlots);
+            if (token.getValue().isEmpty()) {
+                tokenIter.remove();
+                removeGrams(token.getKey());
+            }
+        }
+    }
+
+    /**
+     * Tokens containing every trigram of the query.
+     * @param query search word with at least GRAM_LENGTH characters
+     * @return candidate tokens that still have to be checked for the query
+     */
+    private Set<String> gramCandidates(String query) {
+        Set<String> smallest = null;
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            Set<String> tokens = gramTokens.get(gram(query, i));
+            if (tokens == null) {
+                return Set.of();
+            } else if (smallest == null || tokens.size() < smallest.size()) {
+                smallest = tokens;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Register a new token for all its trigrams.
+     * @param token new token
+     */
+    private void addGrams(String token) {
+        for (int i = 0; i + GRAM_LENGTH <= token.length(); i++) {
+            gramTokens.computeIfAbsent(gram(token, i), key -> new HashSet<>()).add(token);
+        }
+    }
+
+    /**
+     * Unregister a dropped token from all its trigrams.
+     * @param token dropped token
+     */
+    private void removeGrams(String token) {
+        for (int i = 0; i + GRAM_LENGTH <= token.length(); i++) {
+            Long key = gram(token, i);
+            Set<String> tokens = gramTokens.get(key);
+            if (tokens != null) {
+                tokens.remove(token);
+                if (tokens.isEmpty()) {
+                    gramTokens.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pack the trigram starting at the given position into a long.
+     * @param text token or query
+     * @param start first character of the trigram
+     * @return packed trigram
+     */
+    private static long gram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Set the bits of all slots of a posting list.
+     * @param bits bit set to be updated
+     * @param postings slots to be set
+     */
+    private static void setAll(BitSet bits, PostingList postings) {
+        for (int i = 0; i < postings.size(); i++) {
+            bits.set(postings.get(i));
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the trigram based title search, which has to find exactly the titles a
+ * case-insensitive substring scan over all titles finds, in library order.
+ */
+public class TitleSearchIndexTest {
+
+    /** Words titles are made of, mixing case and sharing trigrams. */
+    private static final String[] WORDS = {
+            "Harry", "POTTER", "pot", "potato", "the", "Theory", "of", "Everything", "a", "an",
+            "Galaxy", "galactic", "guide", "hitchhiker's", "1984", "19", "\u00c4rger", "x", "xx", "xxx",
+    };
+
+    /** Queries searched for in addition to all parts of the words. */
+    private static final String[] QUERIES = {
+            "h", "ot", "pot", "otte", "POTTER", "tter", "the", "HE", "e", "1", "98", "984", "'s",
+            "\u00e4rg", "xx", "xxxx", "gala", "alac", "missing", "zz", "q",
+    };
+
+    /** Output the library messages are discarded to. */
+    private final CommandOutput quiet = new CommandOutput(new PrintStream(OutputStream.nullOutputStream()),
+            new PrintStream(OutputStream.nullOutputStream()));
+
+    /** Book data file of the test. */
+    private Path bookFile;
+
+    @Before
+    public void setUp() throws IOException {
+        bookFile = Files.createTempFile("search-test", ".csv");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(bookFile);
+    }
+
+    /**
+     * Create random titles of one to four words.
+     * @param count number of titles
+     * @param seed seed of the random words
+     * @return titles, possibly with duplicates
+     */
+    private static List<String> randomTitles(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder title = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+            for (int words = random.nextInt(4); words > 0; words--) {
+                title.append(random.nextInt(8) == 0 ? "  " : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            titles.add(title.toString());
+        }
+        return titles;
+    }
+
+    /**
+     * All queries to be compared: the fixed ones and every part of every word, lower cased.
+     * @return distinct lower cased queries
+     */
+    private static List<String> allQueries() {
+        List<String> queries = new ArrayList<>();
+        for (String query : QUERIES) {
+            queries.add(query.toLowerCase());
+        }
+        for (String word : WORDS) {
+            String lower = word.toLowerCase();
+            for (int start = 0; start < lower.length(); start++) {
+                for (int end = start + 1; end <= lower.length(); end++) {
+                    if (!queries.contains(lower.substring(start, end))) {
+                        queries.add(lower.substring(start, end));
+                    }
+                }
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Slots of all titles containing the query, found by scanning every title.
+     * @param titles titles by slot, null for removed ones
+     * @param query lower cased query
+     * @return matching slots in increasing order
+     */
+    private static List<Integer> scan(List<String> titles, String query) {
+        List<Integer> slots = new ArrayList<>();
+        for (int slot = 0; slot < titles.size(); slot++) {
+            if (titles.get(slot) != null && titles.get(slot).toLowerCase().contains(query)) {
+                slots.add(slot);
+            }
+        }
+        return slots;
+    }
+
+    private static List<Integer> toList(PostingList postings) {
+        List<Integer> slots = new ArrayList<>();
+        for (int i = 0; i < postings.size(); i++) {
+            slots.add(postings.get(i));
+        }
+        return slots;
+    }
+
+    @Test
+    public void testSearchMatchesScan() {
+        List<String> titles = randomTitles(500, 1);
+        TitleSearchIndex index = new TitleSearchIndex();
+        for (int slot = 0; slot < titles.size(); slot++) {
+            index.add(slot, titles.get(slot));
+        }
+
+        for (String query : allQueries()) {
+            assertEquals("Slots for: " + query, scan(titles, query), toList(index.search(query)));
+        }
+    }
+
+    @Test
+    public void testSearchAfterRemap() {
+        List<String> titles = randomTitles(300, 2);
+        TitleSearchIndex index = new TitleSearchIndex();
+        for (int slot = 0; slot < titles.size(); slot++) {
+            index.add(slot, titles.get(slot));
+        }
+
+        // drop every title containing "pot" and every third one, then compact the slots
+        int[] newSlots = new int[titles.size()];
+        List<String> kept = new ArrayList<>();
+        for (int slot = 0; slot < titles.size(); slot++) {
+            if (slot % 3 == 0 || titles.get(slot).toLowerCase().contains("pot")) {
+                newSlots[slot] = -1;
+            } else {
+                newSlots[slot] = kept.size();
+                kept.add(titles.get(slot));
+            }
+        }
+        index.remap(newSlots);
+
+        for (String query : allQueries()) {
+            assertEquals("Slots for: " + query, scan(kept, query), toList(index.search(query)));
+        }
+        assertTrue(index.search("pot").isEmpty());
+
+        // titles added after compaction take the next slots
+        index.add(kept.size(), "Potter returns");
+        kept.add("Potter returns");
+        assertEquals(scan(kept, "pot"), toList(index.search("pot")));
+    }
+
+    @Test
+    public void testInvalidQueriesRejected() {
+        TitleSearchIndex index = new TitleSearchIndex();
+        index.add(0, "a title");
+
+        assertThrows(IllegalArgumentException.class, () -> index.search(""));
+        assertThrows(IllegalArgumentException.class, () -> index.search("a title"));
+    }
+
+    @Test
+    public void testLibrarySearchMatchesScan() throws IOException {
+        for (StorageMode mode : StorageMode.values()) {
+            List<String> titles = randomTitles(400, 3);
+            StringBuilder rows = new StringBuilder("title,authors,average_rating,isbn,num_pages\n");
+            for (int i = 0; i < titles.size(); i++) {
+                rows.append(titles.get(i)).append(",Author ").append(i % 7).append(",4.0,").append(i).append(",100\n");
+            }
+            Files.write(bookFile, rows.toString().getBytes(StandardCharsets.UTF_8));
+
+            LibraryData data = new LibraryData(mode);
+            assertTrue(data.loadData(bookFile, quiet));
+            // removing most books compacts the library, which renumbers every slot
+            List<String> remaining = new ArrayList<>(titles);
+            for (int i = 0; i < titles.size(); i++) {
+                if (i % 4 != 0 && data.removeByTitle(titles.get(i), quiet) != null) {
+                    remaining.remove(titles.get(i));
+                }
+            }
+
+            List<String> queries = allQueries();
+            queries.addAll(Arrays.asList("harry pot", "of e", "  ", " "));
+            for (String query : queries) {
+                List<String> expected = new ArrayList<>();
+                for (int slot : scan(remaining, query)) {
+                    expected.add(remaining.get(slot));
+                }
+                List<String> found = new ArrayList<>();
+                for (BookEntry book : data.searchTitles(query)) {
+                    found.add(book.getTitle());
+                }
+                assertEquals(mode + " titles for: " + query, expected, found);
+            }
+        }
+    }
+}